@@ -0,0 +1,14 @@
+# Rules applied to apps that minify while depending on this library.
+
+# Views are inflated from layouts through their (Context, AttributeSet) constructors.
+-keep public class co.ceryle.segmentedbutton.SegmentedButton {
+    public <init>(android.content.Context, android.util.AttributeSet);
+    public <init>(android.content.Context, android.util.AttributeSet, int);
+}
+-keep public class co.ceryle.segmentedbutton.SegmentedButtonGroup {
+    public <init>(android.content.Context, android.util.AttributeSet);
+    public <init>(android.content.Context, android.util.AttributeSet, int);
+}
+
+# Interpolators are created directly by InterpolatorRegistry, no reflection is involved,
+# so no interpolator classes need to be kept.
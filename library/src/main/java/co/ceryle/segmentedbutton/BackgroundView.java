@@ -1,6 +1,7 @@
 package co.ceryle.segmentedbutton;
 
 import android.content.Context;
+import android.graphics.drawable.Drawable;
 import android.support.annotation.Nullable;
 import android.util.AttributeSet;
 import android.view.View;
@@ -29,4 +30,33 @@ public class BackgroundView extends View {
         int heightSize = resolveSizeAndState(h, heightMeasureSpec, 0);
         setMeasuredDimension(widthSize, heightSize);
     }
+
+    private Drawable savedBackground;
+
+    /**
+     * Removes the background but keeps it, so it can be put back without building a new one
+     */
+    void saveBackground() {
+        if (null != getBackground())
+            savedBackground = getBackground();
+        BackgroundHelper.setBackground(this, null);
+    }
+
+    /**
+     * @return false if there is no saved background to put back
+     */
+    boolean restoreBackground() {
+        if (null == savedBackground)
+            return false;
+        BackgroundHelper.setBackground(this, savedBackground);
+        savedBackground = null;
+        return true;
+    }
+
+    /**
+     * Drops the saved background, e.g. when ripple style changed and it has to be built again
+     */
+    void clearSavedBackground() {
+        savedBackground = null;
+    }
 }
@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2016 ceryle
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package co.ceryle.segmentedbutton;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+
+import java.util.ArrayList;
+
+/**
+ * Bounded pool of bitmaps that buttons render icons and snapshots into. Only used on the UI thread.
+ */
+class BitmapPool {
+
+    private static final int MAX_POOLED_BYTES = 4 * 1024 * 1024;
+
+    private static final ArrayList<Bitmap> pool = new ArrayList<>();
+    private static int pooledBytes = 0;
+
+    /**
+     * @return a transparent ARGB_8888 bitmap of the given size, reused from the pool if possible
+     */
+    static Bitmap obtain(int width, int height) {
+        for (int i = pool.size() - 1; i >= 0; i--) {
+            Bitmap bitmap = pool.get(i);
+            if (bitmap.getWidth() == width && bitmap.getHeight() == height) {
+                pool.remove(i);
+                pooledBytes -= getByteCount(bitmap);
+                bitmap.eraseColor(Color.TRANSPARENT);
+                return bitmap;
+            }
+        }
+        return Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+    }
+
+    /**
+     * Gives the bitmap back to the pool, it is left to the garbage collector if the pool is full
+     */
+    static void release(Bitmap bitmap) {
+        if (null == bitmap || bitmap.isRecycled())
+            return;
+
+        int byteCount = getByteCount(bitmap);
+        if (pooledBytes + byteCount > MAX_POOLED_BYTES)
+            return;
+
+        pool.add(bitmap);
+        pooledBytes += byteCount;
+    }
+
+    private static int getByteCount(Bitmap bitmap) {
+        return bitmap.getRowBytes() * bitmap.getHeight();
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2016 ceryle
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package co.ceryle.segmentedbutton;
+
+import android.support.v4.view.animation.FastOutLinearInInterpolator;
+import android.support.v4.view.animation.FastOutSlowInInterpolator;
+import android.support.v4.view.animation.LinearOutSlowInInterpolator;
+import android.util.SparseArray;
+import android.view.animation.AccelerateDecelerateInterpolator;
+import android.view.animation.AccelerateInterpolator;
+import android.view.animation.AnticipateInterpolator;
+import android.view.animation.AnticipateOvershootInterpolator;
+import android.view.animation.BounceInterpolator;
+import android.view.animation.CycleInterpolator;
+import android.view.animation.DecelerateInterpolator;
+import android.view.animation.Interpolator;
+import android.view.animation.LinearInterpolator;
+import android.view.animation.OvershootInterpolator;
+
+/**
+ * Shared interpolator instances indexed by the sbg_animateSelector constants of {@link SegmentedButtonGroup}.
+ * Interpolators are stateless, so one instance per id serves every group. Built-in ones are created
+ * the first time they are asked for.
+ */
+final class InterpolatorRegistry {
+
+    private static final SparseArray<Interpolator> interpolators = new SparseArray<>();
+
+    private InterpolatorRegistry() {
+    }
+
+    static Interpolator get(int id) {
+        synchronized (interpolators) {
+            Interpolator interpolator = interpolators.get(id);
+            if (null == interpolator) {
+                interpolator = create(id);
+                if (null != interpolator)
+                    interpolators.put(id, interpolator);
+            }
+            return interpolator;
+        }
+    }
+
+    static void register(int id, Interpolator interpolator) {
+        synchronized (interpolators) {
+            if (null == interpolator)
+                interpolators.remove(id);
+            else
+                interpolators.put(id, interpolator);
+        }
+    }
+
+    private static Interpolator create(int id) {
+        switch (id) {
+            case SegmentedButtonGroup.FastOutSlowInInterpolator:
+                return new FastOutSlowInInterpolator();
+            case SegmentedButtonGroup.BounceInterpolator:
+                return new BounceInterpolator();
+            case SegmentedButtonGroup.LinearInterpolator:
+                return new LinearInterpolator();
+            case SegmentedButtonGroup.DecelerateInterpolator:
+                return new DecelerateInterpolator();
+            case SegmentedButtonGroup.CycleInterpolator:
+                // a quarter cycle, so the selector still ends on the selected button
+                return new CycleInterpolator(0.25f);
+            case SegmentedButtonGroup.AnticipateInterpolator:
+                return new AnticipateInterpolator();
+            case SegmentedButtonGroup.AccelerateDecelerateInterpolator:
+                return new AccelerateDecelerateInterpolator();
+            case SegmentedButtonGroup.AccelerateInterpolator:
+                return new AccelerateInterpolator();
+            case SegmentedButtonGroup.AnticipateOvershootInterpolator:
+                return new AnticipateOvershootInterpolator();
+            case SegmentedButtonGroup.FastOutLinearInInterpolator:
+                return new FastOutLinearInInterpolator();
+            case SegmentedButtonGroup.LinearOutSlowInInterpolator:
+                return new LinearOutSlowInInterpolator();
+            case SegmentedButtonGroup.OvershootInterpolator:
+                return new OvershootInterpolator();
+            default:
+                return null;
+        }
+    }
+}
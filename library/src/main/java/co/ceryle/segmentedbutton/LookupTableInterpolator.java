@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2016 ceryle
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package co.ceryle.segmentedbutton;
+
+import android.view.animation.Interpolator;
+
+import java.util.WeakHashMap;
+
+/**
+ * Interpolator that samples another one into a fixed table once and linearly interpolates between entries,
+ * so curves with trigonometric or power functions cost two array reads per frame.
+ * <p>
+ * {@link #obtain(Interpolator)} returns the same table for the same source interpolator. Built-in interpolators
+ * are single instances too, so every group using the same sbg_animateSelector value shares one table.
+ */
+public final class LookupTableInterpolator implements Interpolator {
+
+    private static final int STEPS = 256;
+
+    private static final WeakHashMap<Interpolator, LookupTableInterpolator> tables = new WeakHashMap<>();
+
+    /**
+     * Tables do not keep their source, it is the weak key of the table in {@link #tables}
+     */
+    private final float[] values = new float[STEPS + 1];
+
+    private LookupTableInterpolator(Interpolator source) {
+        for (int i = 0; i <= STEPS; i++)
+            values[i] = source.getInterpolation((float) i / STEPS);
+    }
+
+    /**
+     * @param source is the interpolator to sample
+     * @return baked table of the interpolator, built if no group has used the interpolator before
+     */
+    public static LookupTableInterpolator obtain(Interpolator source) {
+        if (source instanceof LookupTableInterpolator)
+            return (LookupTableInterpolator) source;
+
+        synchronized (tables) {
+            LookupTableInterpolator table = tables.get(source);
+            if (null == table) {
+                table = new LookupTableInterpolator(source);
+                tables.put(source, table);
+            }
+            return table;
+        }
+    }
+
+    @Override
+    public float getInterpolation(float input) {
+        if (input <= 0f)
+            return values[0];
+        if (input >= 1f)
+            return values[STEPS];
+
+        float position = input * STEPS;
+        int index = (int) position;
+        float fraction = position - index;
+        return values[index] + (values[index + 1] - values[index]) * fraction;
+    }
+
+    /**
+     * @param source is the interpolator the table was obtained for
+     * @return largest difference between the table and the source interpolator, checked at ten points
+     * between every two entries
+     */
+    public float getMaxError(Interpolator source) {
+        int checks = STEPS * 10;
+        float maxError = 0;
+        for (int i = 0; i <= checks; i++) {
+            float input = (float) i / checks;
+            maxError = Math.max(maxError, Math.abs(getInterpolation(input) - source.getInterpolation(input)));
+        }
+        return maxError;
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2016 ceryle
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package co.ceryle.segmentedbutton;
+
+/**
+ * Result of a button's last measure pass and what it depended on. LinearLayout and weighted parents measure
+ * the same button more than once per layout; if nothing changed since the last pass, its result and the
+ * content positions computed with it are still valid.
+ */
+final class MeasureCache {
+
+    /**
+     * Incremented whenever something the measure depends on changes, except the values compared in
+     * {@link #matches(int, int, int, int, int, int, int, int)}
+     */
+    private int version;
+    private int savedVersion = -1, widthMeasureSpec, heightMeasureSpec, paddingLeft, paddingTop, paddingRight,
+            paddingBottom, drawableWidth, drawableHeight;
+    private int measuredWidth, measuredHeight;
+    private int missCount;
+
+    void invalidate() {
+        version++;
+    }
+
+    /**
+     * @return true if the last saved result can be used, otherwise the miss is counted
+     */
+    boolean matches(int widthMeasureSpec, int heightMeasureSpec, int paddingLeft, int paddingTop, int paddingRight,
+                    int paddingBottom, int drawableWidth, int drawableHeight) {
+        boolean matches = savedVersion == version
+                && this.widthMeasureSpec == widthMeasureSpec
+                && this.heightMeasureSpec == heightMeasureSpec
+                && this.paddingLeft == paddingLeft
+                && this.paddingTop == paddingTop
+                && this.paddingRight == paddingRight
+                && this.paddingBottom == paddingBottom
+                && this.drawableWidth == drawableWidth
+                && this.drawableHeight == drawableHeight;
+        if (!matches)
+            missCount++;
+        return matches;
+    }
+
+    void save(int widthMeasureSpec, int heightMeasureSpec, int paddingLeft, int paddingTop, int paddingRight,
+              int paddingBottom, int drawableWidth, int drawableHeight, int measuredWidth, int measuredHeight) {
+        savedVersion = version;
+        this.widthMeasureSpec = widthMeasureSpec;
+        this.heightMeasureSpec = heightMeasureSpec;
+        this.paddingLeft = paddingLeft;
+        this.paddingTop = paddingTop;
+        this.paddingRight = paddingRight;
+        this.paddingBottom = paddingBottom;
+        this.drawableWidth = drawableWidth;
+        this.drawableHeight = drawableHeight;
+        this.measuredWidth = measuredWidth;
+        this.measuredHeight = measuredHeight;
+    }
+
+    int getMeasuredWidth() {
+        return measuredWidth;
+    }
+
+    int getMeasuredHeight() {
+        return measuredHeight;
+    }
+
+    /**
+     * @return how many measure passes could not reuse the last result
+     */
+    int getMissCount() {
+        return missCount;
+    }
+}
@@ -28,6 +28,7 @@ import android.graphics.drawable.ShapeDrawable;
 import android.graphics.drawable.StateListDrawable;
 import android.graphics.drawable.shapes.RoundRectShape;
 import android.os.Build;
+import android.support.v4.util.LruCache;
 import android.view.View;
 
 import java.util.Arrays;
@@ -35,11 +36,15 @@ import java.util.Arrays;
 class RippleHelper {
 
     static void setSelectableItemBackground(Context context, View view) {
+        BackgroundHelper.setBackground(view, getSelectableItemBackground(context));
+    }
+
+    static Drawable getSelectableItemBackground(Context context) {
         int[] attrs = new int[]{android.R.attr.selectableItemBackground};
         TypedArray ta = context.obtainStyledAttributes(attrs);
         Drawable drawableFromTheme = ta.getDrawable(0 /* index */);
         ta.recycle();
-        BackgroundHelper.setBackground(view, drawableFromTheme);
+        return drawableFromTheme;
     }
 
     static void setRipple(View view, int pressedColor, int radius) {
@@ -47,10 +52,62 @@ class RippleHelper {
     }
 
     static void setRipple(View view, int pressedColor, Integer normalColor, int radius) {
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
-            view.setBackground(getRippleDrawable(pressedColor, normalColor, radius));
-        } else {
-            view.setBackgroundDrawable(getStateListDrawable(pressedColor, normalColor, radius));
+        BackgroundHelper.setBackground(view, obtainRipple(pressedColor, normalColor, radius));
+    }
+
+    private static final LruCache<RippleKey, Drawable.ConstantState> rippleStates = new LruCache<>(32);
+
+    /**
+     * Ripples are built once per (pressed color, normal color, radius) and every view gets a copy
+     * of the cached constant state, instead of new color lists, shapes and masks
+     */
+    static Drawable obtainRipple(int pressedColor, Integer normalColor, int radius) {
+        RippleKey key = new RippleKey(pressedColor, normalColor, radius);
+        Drawable.ConstantState state = rippleStates.get(key);
+        if (null == state) {
+            Drawable drawable;
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+                drawable = getRippleDrawable(pressedColor, normalColor, radius);
+            } else {
+                drawable = getStateListDrawable(pressedColor, normalColor, radius);
+            }
+            state = drawable.getConstantState();
+            if (null == state)
+                return drawable;
+            rippleStates.put(key, state);
+        }
+        return state.newDrawable();
+    }
+
+    private static final class RippleKey {
+        private final int pressedColor, normalColor, radius;
+        private final boolean hasNormalColor;
+
+        RippleKey(int pressedColor, Integer normalColor, int radius) {
+            this.pressedColor = pressedColor;
+            this.hasNormalColor = null != normalColor;
+            this.normalColor = hasNormalColor ? normalColor : 0;
+            this.radius = radius;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (!(o instanceof RippleKey))
+                return false;
+            RippleKey key = (RippleKey) o;
+            return pressedColor == key.pressedColor && normalColor == key.normalColor
+                    && radius == key.radius && hasNormalColor == key.hasNormalColor;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = pressedColor;
+            result = 31 * result + normalColor;
+            result = 31 * result + radius;
+            result = 31 * result + (hasNormalColor ? 1 : 0);
+            return result;
         }
     }
 
@@ -17,8 +17,8 @@ package co.ceryle.segmentedbutton;
 
 import android.graphics.drawable.Drawable;
 import android.graphics.drawable.GradientDrawable;
+import android.support.v4.util.LruCache;
 import android.view.View;
-import android.widget.LinearLayout;
 
 class RoundHelper {
 
@@ -27,20 +27,60 @@ class RoundHelper {
         BackgroundHelper.setBackground(view, gradient);
     }
 
-    static void makeDividerRound(LinearLayout layout, int dividerColor, int dividerRadius, int dividerSize, Drawable drawable) {
-        GradientDrawable gradient = null;
+    private static final LruCache<DividerKey, Drawable.ConstantState> dividerStates = new LruCache<>(16);
+
+    /**
+     * Always returns a mutated drawable, so the group may change its bounds and alpha while drawing.
+     * A user drawable is copied before it is styled, so the drawable shared through resources is left untouched.
+     * Otherwise dividers are built once per (color, radius, size) and every group gets a copy of the cached state.
+     */
+    static Drawable makeDividerRound(int dividerColor, int dividerRadius, int dividerSize, Drawable drawable) {
         if (null != drawable) {
-            if (drawable instanceof GradientDrawable) {
-                gradient = (GradientDrawable) drawable;
+            Drawable.ConstantState drawableState = drawable.getConstantState();
+            Drawable divider = (null != drawableState ? drawableState.newDrawable() : drawable).mutate();
+            if (divider instanceof GradientDrawable) {
+                GradientDrawable gradient = (GradientDrawable) divider;
                 gradient.setSize(dividerSize, 0);
                 gradient.setCornerRadius(dividerRadius);
-            } else {
-                layout.setDividerDrawable(drawable);
             }
-        } else {
-            gradient = getGradientDrawable(dividerColor, dividerRadius, dividerSize);
+            return divider;
+        }
+
+        DividerKey key = new DividerKey(dividerColor, dividerRadius, dividerSize);
+        Drawable.ConstantState state = dividerStates.get(key);
+        if (null == state) {
+            state = getGradientDrawable(dividerColor, dividerRadius, dividerSize).getConstantState();
+            dividerStates.put(key, state);
+        }
+        return state.newDrawable().mutate();
+    }
+
+    private static final class DividerKey {
+        private final int color, radius, size;
+
+        DividerKey(int color, int radius, int size) {
+            this.color = color;
+            this.radius = radius;
+            this.size = size;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (!(o instanceof DividerKey))
+                return false;
+            DividerKey key = (DividerKey) o;
+            return color == key.color && radius == key.radius && size == key.size;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = color;
+            result = 31 * result + radius;
+            result = 31 * result + size;
+            return result;
         }
-        layout.setDividerDrawable(gradient);
     }
 
     private static GradientDrawable getGradientDrawable(int dividerColor, int dividerRadius, int dividerSize) {
@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2016 ceryle
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package co.ceryle.segmentedbutton;
+
+/**
+ * Prefix sums of segment widths, relative to the group's left padding. edges[i] is the start of segment i
+ * and edges[count] is the end of the last one. Filled when segments are measured, then touch mapping,
+ * selector bounds and invalidation only look it up, with a binary search where a segment has to be found.
+ */
+final class SegmentGeometry {
+
+    private int[] edges = new int[1];
+    private int count;
+
+    void setCount(int count) {
+        if (edges.length != count + 1)
+            edges = new int[count + 1];
+        this.count = count;
+    }
+
+    void setWidth(int index, int width) {
+        edges[index + 1] = edges[index] + width;
+    }
+
+    /**
+     * @return false until segments are measured
+     */
+    boolean isValid(int count) {
+        return count > 0 && this.count == count;
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    int getStart(int index) {
+        return edges[index];
+    }
+
+    int getEnd(int index) {
+        return edges[index + 1];
+    }
+
+    int getWidth(int index) {
+        return edges[index + 1] - edges[index];
+    }
+
+    /**
+     * @return segment containing x, clamped to the first and last segment
+     */
+    int segmentAt(float x) {
+        int low = 0, high = count - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (x < edges[mid + 1])
+                high = mid;
+            else
+                low = mid + 1;
+        }
+        return low;
+    }
+
+    private float getCenter(int index) {
+        return (edges[index] + edges[index + 1]) / 2f;
+    }
+
+    /**
+     * Selector at position i + f lies between segment i and i + 1, and its center moves linearly
+     * between their centers.
+     *
+     * @return selector position whose center is at x, clamped to the first and last segment
+     */
+    float positionAt(float x) {
+        int index = segmentAt(x);
+        if (x < getCenter(index) && index > 0)
+            index--;
+        if (index == count - 1)
+            return index;
+
+        float fraction = (x - getCenter(index)) / (getCenter(index + 1) - getCenter(index));
+        return index + Math.max(0f, Math.min(1f, fraction));
+    }
+
+    /**
+     * @return distance in pixels the selector travels for one position around the given position
+     */
+    float getStepWidth(float position) {
+        if (count < 2)
+            return Math.max(1, getWidth(0));
+        int index = Math.max(0, Math.min(count - 2, (int) position));
+        return Math.max(1f, getCenter(index + 1) - getCenter(index));
+    }
+
+    float getSelectorLeft(float position) {
+        int index = getIndex(position);
+        return edges[index] + (position - index) * getWidth(index);
+    }
+
+    float getSelectorRight(float position) {
+        int index = getIndex(position);
+        float fraction = position - index;
+        int width = getWidth(index);
+        int nextWidth = index + 1 < count ? getWidth(index + 1) : width;
+        return edges[index] + fraction * width + width + fraction * (nextWidth - width);
+    }
+
+    private int getIndex(float position) {
+        int index = (int) Math.floor(position);
+        return Math.max(0, Math.min(count - 1, index));
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2016 ceryle
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package co.ceryle.segmentedbutton;
+
+import android.graphics.drawable.Drawable;
+
+/**
+ * Describes one segment for {@link SegmentedButtonGroup#setSegments(java.util.List)}.
+ * Segments are matched by id between updates, so a segment keeping its id keeps its button.
+ */
+public final class SegmentSpec {
+
+    private final String id;
+    private final String text;
+    private final Drawable drawable;
+
+    public SegmentSpec(String id, String text) {
+        this(id, text, null);
+    }
+
+    /**
+     * @param id       identifies the segment between updates, must be unique in a list
+     * @param text     is shown on the button, may be null
+     * @param drawable is shown on the button, may be null
+     */
+    public SegmentSpec(String id, String text, Drawable drawable) {
+        if (null == id)
+            throw new IllegalArgumentException("Segment id can not be null");
+        this.id = id;
+        this.text = text;
+        this.drawable = drawable;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public Drawable getDrawable() {
+        return drawable;
+    }
+}
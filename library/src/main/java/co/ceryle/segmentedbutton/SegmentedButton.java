@@ -24,15 +24,12 @@ import android.graphics.Color;
 import android.graphics.ColorFilter;
 import android.graphics.Matrix;
 import android.graphics.Paint;
-import android.graphics.PorterDuff;
-import android.graphics.PorterDuffColorFilter;
 import android.graphics.Rect;
 import android.graphics.RectF;
 import android.graphics.Typeface;
 import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
 import android.support.v4.content.ContextCompat;
-import android.text.Layout;
 import android.text.StaticLayout;
 import android.text.TextPaint;
 import android.util.AttributeSet;
@@ -58,31 +55,86 @@ public class SegmentedButton extends View {
         init(context, attrs);
     }
 
+    /**
+     * Creates a button without parsing any attributes, its content is set with {@link #setText(String)} and
+     * {@link #setDrawable(Drawable)}
+     *
+     * @param style is shared with other buttons, e.g. one from {@link SegmentedButtonStyle#obtain(Context, int)}
+     */
+    public SegmentedButton(Context context, SegmentedButtonStyle style) {
+        super(context);
+        this.context = context;
+        applyStyle(style);
+    }
+
     private float mClipAmount;
     private boolean clipLeftToRight;
 
     private TextPaint mTextPaint;
-    private StaticLayout mStaticLayout, mStaticLayoutOverlay;
+    private StaticLayout mStaticLayout;
+    private int mTextWidth;
     private Rect mTextBounds = new Rect();
     private int mRadius, mBorderSize;
-    private boolean hasBorderLeft, hasBorderRight;
+    private boolean hasBorderLeft, hasBorderRight, drawnByGroup;
 
     // private RectF rectF = new RectF();
 
     private void init(Context context, AttributeSet attrs) {
         this.context = context;
+        applyStyle(SegmentedButtonStyle.obtain(context, attrs));
         getAttributes(attrs);
 
         initText();
         initBitmap();
-        mRectF = new RectF();
-        mPaint = new Paint();
-        mPaint.setColor(Color.BLACK);
-        mPaint.setAntiAlias(true);
+    }
+
+    private SegmentedButtonStyle style;
+
+    private void applyStyle(SegmentedButtonStyle style) {
+        this.style = style;
+        pendingTypefacePath = null;
+        mTextPaint = style.textPaint;
+
+        // renders with the style's typeface until the one in assets is loaded
+        if (null != style.textTypefacePath && style.textTypefaceAsync)
+            setTypeface(style.textTypefacePath, true);
+    }
+
+    /**
+     * @param style replaces every appearance value of the button, its text and drawable are kept
+     */
+    public void setStyle(SegmentedButtonStyle style) {
+        if (this.style == style)
+            return;
+
+        applyStyle(style);
+        if (null != mStaticLayout)
+            updateTextLayout();
+        invalidateIcons();
+        invalidateSnapshots();
+        measureCache.invalidate();
+        requestLayout();
+    }
+
+    /**
+     * @return style of the button, shared with other buttons. A setter that changes the button's look gives
+     * the button its own copy.
+     */
+    public SegmentedButtonStyle getStyle() {
+        return style;
+    }
+
+    /**
+     * When the button is in a group, selector and selected content are drawn by the group
+     */
+    void setDrawnByGroup(boolean drawnByGroup) {
+        this.drawnByGroup = drawnByGroup;
     }
 
     void setSelectorColor(int color) {
-        mPaint.setColor(color);
+        selectorColor = color;
+        if (null != mPaint)
+            mPaint.setColor(color);
     }
 
     void setSelectorRadius(int radius) {
@@ -101,71 +153,84 @@ public class SegmentedButton extends View {
         this.hasBorderRight = hasBorderRight;
     }
 
+    /**
+     * Only used when the button draws its own selector, buttons in a group never allocate them
+     */
     private RectF mRectF;
     private Paint mPaint;
+    private int selectorColor = Color.BLACK;
 
     private void initText() {
         if (!hasText)
             return;
 
-        mTextPaint = new TextPaint();
-        mTextPaint.setAntiAlias(true);
-        mTextPaint.setTextSize(textSize);
-        mTextPaint.setColor(textColor);
+        // default to a single line of text
+        mTextWidth = (int) mTextPaint.measureText(text);
+        mStaticLayout = TextLayoutCache.obtain(text, mTextPaint, mTextWidth);
+    }
 
-        if (hasTextTypefacePath)
-            setTypeface(textTypefacePath);
-        else if (null != textTypeface) {
-            setTypeface(textTypeface);
-        }
+    /**
+     * Paint used for labels, {@link TextPrecomputer} builds the same one so precomputed layouts are found
+     * in {@link TextLayoutCache}. Paints of a {@link SegmentedButtonStyle} are shared, so they are never changed
+     * after they are created.
+     */
+    static TextPaint createTextPaint(float textSize, Typeface typeface) {
+        TextPaint textPaint = new TextPaint();
+        textPaint.setAntiAlias(true);
+        textPaint.setTextSize(textSize);
+        // null would never match the default typeface of a style in TextLayoutCache's keys
+        textPaint.setTypeface(null != typeface ? typeface : Typeface.DEFAULT);
+        return textPaint;
+    }
 
-        // default to a single line of text
-        int width = (int) mTextPaint.measureText(text);
-        mStaticLayout = new StaticLayout(text, mTextPaint, width, Layout.Alignment.ALIGN_NORMAL, 1.0f, 0, false);
-        mStaticLayoutOverlay = new StaticLayout(text, mTextPaint, width, Layout.Alignment.ALIGN_NORMAL, 1.0f, 0, false);
+    TextPaint getTextPaint() {
+        return mTextPaint;
     }
 
     private void initBitmap() {
         if (hasDrawable) {
-            mDrawable = ContextCompat.getDrawable(context, drawable);
+            // mutated, so color filters do not leak into other drawables of the same resource
+            mDrawable = ContextCompat.getDrawable(context, drawable).mutate();
+            mDrawable.setCallback(this);
         }
-
-        if (hasDrawableTint) {
-            mBitmapNormalColor = new PorterDuffColorFilter(drawableTint, PorterDuff.Mode.SRC_IN);
-        }
-
-        if (hasDrawableTintOnSelection)
-            mBitmapClipColor = new PorterDuffColorFilter(drawableTintOnSelection, PorterDuff.Mode.SRC_IN);
     }
     
     private void measureTextWidth(int width) {
         if (!hasText)
             return;
 
-        int bitmapWidth = hasDrawable && drawableGravity.isHorizontal() ? mDrawable.getIntrinsicWidth() : 0;
+        int bitmapWidth = hasDrawable && style.drawableGravity.isHorizontal() ? mDrawable.getIntrinsicWidth() : 0;
 
         int textWidth = width - (bitmapWidth + getPaddingLeft() + getPaddingRight());
 
         if (textWidth < 0)
             return;
 
-        mStaticLayout = new StaticLayout(text, mTextPaint, textWidth, Layout.Alignment.ALIGN_NORMAL, 1.0f, 0, false);
-        mStaticLayoutOverlay = new StaticLayout(text, mTextPaint, textWidth, Layout.Alignment.ALIGN_NORMAL, 1.0f, 0, false);
+        // A single line that fits looks the same in its natural width layout, which may be precomputed
+        mStaticLayout = TextLayoutCache.obtain(text, mTextPaint, Math.min(textWidth, mTextWidth));
     }
 
     @Override
     protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int drawableWidth = hasDrawable ? mDrawable.getIntrinsicWidth() : 0;
+        int drawableHeight = hasDrawable ? mDrawable.getIntrinsicHeight() : 0;
+        if (measureCache.matches(widthMeasureSpec, heightMeasureSpec, getPaddingLeft(), getPaddingTop(),
+                getPaddingRight(), getPaddingBottom(), drawableWidth, drawableHeight)) {
+            setMeasuredDimension(measureCache.getMeasuredWidth(), measureCache.getMeasuredHeight());
+            return;
+        }
+
         int widthMode = MeasureSpec.getMode(widthMeasureSpec);
         int widthRequirement = MeasureSpec.getSize(widthMeasureSpec);
         int heightMode = MeasureSpec.getMode(heightMeasureSpec);
         int heightRequirement = MeasureSpec.getSize(heightMeasureSpec);
 
         int width = 0;
-        int bitmapWidth = hasDrawable ? mDrawable.getIntrinsicWidth() : 0;
+        int bitmapWidth = drawableWidth;
         int textWidth = hasText ? mStaticLayout.getWidth() : 0;
 
         int height = getPaddingTop() + getPaddingBottom();
-        int bitmapHeight = hasDrawable ? mDrawable.getIntrinsicHeight() : 0;
+        int bitmapHeight = drawableHeight;
         int textHeight = hasText ? mStaticLayout.getHeight() : 0;
 
         switch (widthMode) {
@@ -177,8 +242,8 @@ public class SegmentedButton extends View {
                 break;
             case MeasureSpec.AT_MOST:
 
-                if (drawableGravity.isHorizontal()) {
-                    width = textWidth + bitmapWidth + drawablePadding;
+                if (style.drawableGravity.isHorizontal()) {
+                    width = textWidth + bitmapWidth + style.drawablePadding;
                 } else {
                     width = Math.max(bitmapWidth, textWidth);
                 }
@@ -202,7 +267,7 @@ public class SegmentedButton extends View {
         switch (heightMode) {
             case MeasureSpec.EXACTLY:
 
-                if (drawableGravity.isHorizontal()) {
+                if (style.drawableGravity.isHorizontal()) {
                     height = heightRequirement;
                     int h = Math.max(textHeight, bitmapHeight) + getPaddingTop() + getPaddingBottom();
                     if (heightRequirement < h) {
@@ -219,10 +284,10 @@ public class SegmentedButton extends View {
 
             case MeasureSpec.AT_MOST:
                 int vHeight;
-                if (drawableGravity.isHorizontal()) {
+                if (style.drawableGravity.isHorizontal()) {
                     vHeight = Math.max(textHeight, bitmapHeight);
                 } else {
-                    vHeight = textHeight + bitmapHeight + drawablePadding;
+                    vHeight = textHeight + bitmapHeight + style.drawablePadding;
                 }
 
                 height = vHeight + getPaddingTop() * 2 + getPaddingBottom() * 2;
@@ -235,8 +300,12 @@ public class SegmentedButton extends View {
 
         calculate(width, height);
         setMeasuredDimension(width, height);
+        measureCache.save(widthMeasureSpec, heightMeasureSpec, getPaddingLeft(), getPaddingTop(),
+                getPaddingRight(), getPaddingBottom(), drawableWidth, drawableHeight, width, height);
     }
 
+    private final MeasureCache measureCache = new MeasureCache();
+
     private float text_X = 0.0f, text_Y = 0.0f, bitmap_X = 0.0f, bitmap_Y = 0.0f;
 
     private void calculate(int width, int height) {
@@ -254,7 +323,7 @@ public class SegmentedButton extends View {
         }
 
 
-        if (drawableGravity.isHorizontal()) {
+        if (style.drawableGravity.isHorizontal()) {
             if (height > Math.max(textHeight, bitmapHeight)) {
                 text_Y = height / 2f - textHeight / 2f + getPaddingTop() - getPaddingBottom();
                 bitmap_Y = height / 2f - bitmapHeight / 2f + getPaddingTop() - getPaddingBottom();
@@ -274,34 +343,34 @@ public class SegmentedButton extends View {
                 remainingSpace /= 2f;
             }
 
-            if (drawableGravity == DrawableGravity.RIGHT) {
-                text_X = remainingSpace + getPaddingLeft() - getPaddingRight() - drawablePadding / 2f;
-                bitmap_X = text_X + textBoundsWidth + drawablePadding;
-            } else if (drawableGravity == DrawableGravity.LEFT) {
-                bitmap_X = remainingSpace + getPaddingLeft() - getPaddingRight() - drawablePadding / 2f;
-                text_X = bitmap_X + bitmapWidth + drawablePadding;
+            if (style.drawableGravity == DrawableGravity.RIGHT) {
+                text_X = remainingSpace + getPaddingLeft() - getPaddingRight() - style.drawablePadding / 2f;
+                bitmap_X = text_X + textBoundsWidth + style.drawablePadding;
+            } else if (style.drawableGravity == DrawableGravity.LEFT) {
+                bitmap_X = remainingSpace + getPaddingLeft() - getPaddingRight() - style.drawablePadding / 2f;
+                text_X = bitmap_X + bitmapWidth + style.drawablePadding;
             }
         } else {
 
 
-            if (drawableGravity == DrawableGravity.TOP) {
-                bitmap_Y = getPaddingTop() - getPaddingBottom() - drawablePadding / 2f;
+            if (style.drawableGravity == DrawableGravity.TOP) {
+                bitmap_Y = getPaddingTop() - getPaddingBottom() - style.drawablePadding / 2f;
 
                 float vHeight = (height - (textHeight + bitmapHeight)) / 2f;
 
                 if (vHeight > 0)
                     bitmap_Y += vHeight;
 
-                text_Y = bitmap_Y + bitmapHeight + drawablePadding;
+                text_Y = bitmap_Y + bitmapHeight + style.drawablePadding;
 
-            } else if (drawableGravity == DrawableGravity.BOTTOM) {
-                text_Y = getPaddingTop() - getPaddingBottom() - drawablePadding / 2f;
+            } else if (style.drawableGravity == DrawableGravity.BOTTOM) {
+                text_Y = getPaddingTop() - getPaddingBottom() - style.drawablePadding / 2f;
 
                 float vHeight = height - (textHeight + bitmapHeight);
                 if (vHeight > 0)
                     text_Y += vHeight / 2f;
 
-                bitmap_Y = text_Y + textHeight + drawablePadding;
+                bitmap_Y = text_Y + textHeight + style.drawablePadding;
             }
 
 
@@ -318,17 +387,27 @@ public class SegmentedButton extends View {
         }
     }
 
-    private PorterDuffColorFilter mBitmapNormalColor, mBitmapClipColor;
-
     private Drawable mDrawable;
 
     @Override
     protected void onDraw(Canvas canvas) {
         super.onDraw(canvas);
 
+        if (drawnByGroup) {
+            drawContent(canvas, false);
+            return;
+        }
+
         int width = canvas.getWidth();
         int height = canvas.getHeight();
 
+        if (null == mPaint) {
+            mRectF = new RectF();
+            mPaint = new Paint();
+            mPaint.setColor(selectorColor);
+            mPaint.setAntiAlias(true);
+        }
+
         canvas.save();
 
         if (clipLeftToRight)
@@ -342,122 +421,229 @@ public class SegmentedButton extends View {
 
         canvas.restore();
 
-        canvas.save();
-
-        if (hasText) {
-            canvas.translate(text_X, text_Y);
-            if (hasTextColorOnSelection)
-                mTextPaint.setColor(textColor);
-            mStaticLayout.draw(canvas);
+        // NORMAL
+        drawContent(canvas, false);
 
-            canvas.restore();
-        }
+        // CLIPPING
         canvas.save();
 
-        // Bitmap normal
-        if (hasDrawable) {
-            drawDrawableWithColorFilter(canvas, mBitmapNormalColor);
-        }
-        // NORMAL -end
-
-
-        // CLIPPING
         if (clipLeftToRight) {
             canvas.clipRect(width * (1 - mClipAmount), 0, width, height);
         } else {
             canvas.clipRect(0, 0, width * mClipAmount, height);
         }
 
-        // CLIP -start
-        // Text clip
-        canvas.save();
+        drawContent(canvas, true);
+
+        canvas.restore();
+    }
+
+    /**
+     * Draws text and drawable of the button
+     *
+     * @param selected if true, colors of selection are used
+     */
+    void drawContent(Canvas canvas, boolean selected) {
+        if (snapshotsValid) {
+            canvas.drawBitmap(selected ? mSelectedSnapshot : mNormalSnapshot, 0, 0, null);
+            return;
+        }
 
         if (hasText) {
+            canvas.save();
             canvas.translate(text_X, text_Y);
-            if (hasTextColorOnSelection)
-                mTextPaint.setColor(textColorOnSelection);
-            mStaticLayoutOverlay.draw(canvas);
+            // Layout may be shared with other buttons, so its paint gets this button's color on every draw
+            mStaticLayout.getPaint().setColor(selected && style.hasTextColorOnSelection ? style.textColorOnSelection : style.textColor);
+            mStaticLayout.draw(canvas);
             canvas.restore();
         }
 
-        // Bitmap clip
         if (hasDrawable) {
-            drawDrawableWithColorFilter(canvas, mBitmapClipColor);
+            drawIcon(canvas, selected);
         }
-        // CLIP -end
+    }
 
-        canvas.restore();
+    private boolean snapshotsEnabled, snapshotsValid;
+    private Bitmap mNormalSnapshot, mSelectedSnapshot;
+    private Canvas mSnapshotCanvas;
+
+    void setSnapshotsEnabled(boolean snapshotsEnabled) {
+        this.snapshotsEnabled = snapshotsEnabled;
+        if (!snapshotsEnabled)
+            releaseSnapshots();
+    }
+
+    /**
+     * Renders normal and selected content into bitmaps once, so animation frames only draw the two bitmaps
+     * no matter how complex text and drawable are. Snapshots are kept until something they show changes
+     * or the group releases them once the selector stops.
+     */
+    void prepareSnapshots() {
+        if (!snapshotsEnabled || snapshotsValid)
+            return;
+
+        int width = getWidth();
+        int height = getHeight();
+        if (width <= 0 || height <= 0)
+            return;
+
+        mNormalSnapshot = obtainSnapshot(mNormalSnapshot, width, height);
+        mSelectedSnapshot = obtainSnapshot(mSelectedSnapshot, width, height);
+
+        if (null == mSnapshotCanvas)
+            mSnapshotCanvas = new Canvas();
+
+        mSnapshotCanvas.setBitmap(mNormalSnapshot);
+        drawContent(mSnapshotCanvas, false);
+        mSnapshotCanvas.setBitmap(mSelectedSnapshot);
+        drawContent(mSnapshotCanvas, true);
+        mSnapshotCanvas.setBitmap(null);
+
+        snapshotsValid = true;
     }
 
-    private void drawDrawableWithColorFilter(Canvas canvas, ColorFilter colorFilter){
-        int drawableX = (int)bitmap_X;
-        int drawableY = (int)bitmap_Y;
-        int drawableWidth = mDrawable.getIntrinsicWidth();
-        if (hasDrawableWidth) {
-            drawableWidth = this.drawableWidth;
+    private Bitmap obtainSnapshot(Bitmap snapshot, int width, int height) {
+        if (null != snapshot && snapshot.getWidth() == width && snapshot.getHeight() == height) {
+            snapshot.eraseColor(Color.TRANSPARENT);
+            return snapshot;
         }
-        int drawableHeight = mDrawable.getIntrinsicHeight();
-        if (hasDrawableHeight) {
-            drawableHeight = this.drawableHeight;
+        BitmapPool.release(snapshot);
+        return BitmapPool.obtain(width, height);
+    }
+
+    void releaseSnapshots() {
+        snapshotsValid = false;
+        BitmapPool.release(mNormalSnapshot);
+        BitmapPool.release(mSelectedSnapshot);
+        mNormalSnapshot = mSelectedSnapshot = null;
+    }
+
+    private void invalidateSnapshots() {
+        if (snapshotsValid) {
+            snapshotsValid = false;
+            invalidate();
         }
+    }
+
+    @Override
+    public void requestLayout() {
+        invalidateSnapshots();
+        invalidateIcons();
+        super.requestLayout();
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        invalidateSnapshots();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        releaseSnapshots();
+        releaseIcons();
+    }
+
+    @Override
+    protected boolean verifyDrawable(Drawable who) {
+        return who == mDrawable || super.verifyDrawable(who);
+    }
+
+    @Override
+    public void invalidateDrawable(Drawable drawable) {
+        if (drawable == mDrawable) {
+            invalidateSnapshots();
+            invalidateIcons();
+        }
+        super.invalidateDrawable(drawable);
+    }
+
+    /**
+     * Drawable rasterized with normal and selection tints, so drawing an icon is a bitmap draw
+     * instead of changing color filter and bounds of the drawable twice per frame
+     */
+    private Bitmap mNormalIcon, mSelectedIcon;
+    private boolean iconsValid;
+    private Canvas mIconCanvas;
+
+    private void drawIcon(Canvas canvas, boolean selected) {
+        int drawableWidth = style.hasDrawableWidth ? style.drawableWidth : mDrawable.getIntrinsicWidth();
+        int drawableHeight = style.hasDrawableHeight ? style.drawableHeight : mDrawable.getIntrinsicHeight();
+        if (drawableWidth <= 0 || drawableHeight <= 0)
+            return;
+
+        if (!iconsValid || mNormalIcon.getWidth() != drawableWidth || mNormalIcon.getHeight() != drawableHeight) {
+            releaseIcons();
+            mNormalIcon = rasterizeIcon(drawableWidth, drawableHeight, style.normalColorFilter);
+            mSelectedIcon = rasterizeIcon(drawableWidth, drawableHeight, style.selectedColorFilter);
+            iconsValid = true;
+        }
+
+        canvas.drawBitmap(selected ? mSelectedIcon : mNormalIcon, (int) bitmap_X, (int) bitmap_Y, null);
+    }
+
+    private Bitmap rasterizeIcon(int width, int height, ColorFilter colorFilter) {
+        Bitmap icon = BitmapPool.obtain(width, height);
+        if (null == mIconCanvas)
+            mIconCanvas = new Canvas();
+        mIconCanvas.setBitmap(icon);
+
+        // drawable may invalidate itself while its state is changed here, that does not make rasters stale
+        mDrawable.setCallback(null);
         mDrawable.setColorFilter(colorFilter);
-        mDrawable.setBounds(drawableX, drawableY, drawableX + drawableWidth, drawableY + drawableHeight);
-        mDrawable.draw(canvas);
+        mDrawable.setBounds(0, 0, width, height);
+        mDrawable.draw(mIconCanvas);
+        mDrawable.setCallback(this);
+
+        mIconCanvas.setBitmap(null);
+        return icon;
+    }
+
+    private void invalidateIcons() {
+        if (iconsValid) {
+            iconsValid = false;
+            invalidate();
+        }
+    }
+
+    private void releaseIcons() {
+        iconsValid = false;
+        BitmapPool.release(mNormalIcon);
+        BitmapPool.release(mSelectedIcon);
+        mNormalIcon = mSelectedIcon = null;
     }
 
     public void clipToLeft(float clip) {
-        clipLeftToRight = false;
-        mClipAmount = 1.0f - clip;
-        invalidate();
+        setClip(false, 1.0f - clip);
     }
 
     public void clipToRight(float clip) {
-        clipLeftToRight = true;
-        mClipAmount = clip;
+        setClip(true, clip);
+    }
+
+    private void setClip(boolean clipLeftToRight, float clipAmount) {
+        if (this.clipLeftToRight == clipLeftToRight && mClipAmount == clipAmount)
+            return;
+
+        this.clipLeftToRight = clipLeftToRight;
+        mClipAmount = clipAmount;
         invalidate();
     }
 
-    private int drawableTintOnSelection, textColorOnSelection, textColor, rippleColor, buttonWidth,
-            drawable, drawableTint, drawableWidth, drawableHeight, drawablePadding;
-    private boolean hasTextColorOnSelection, hasRipple, hasWidth, hasWeight, hasDrawableTintOnSelection,
-            hasDrawableWidth, hasDrawableHeight, hasDrawableTint, hasTextTypefacePath;
-    private float buttonWeight, textSize;
-    private String textTypefacePath, text;
-    private Typeface textTypeface;
+    private int buttonWidth;
+    private boolean hasWidth, hasWeight;
+    private float buttonWeight;
+    private String text;
 
+    /**
+     * Reads the button's content, appearance comes from its {@link SegmentedButtonStyle}
+     */
     private void getAttributes(AttributeSet attrs) {
         TypedArray ta = getContext().obtainStyledAttributes(attrs, R.styleable.SegmentedButton);
 
-        drawableTintOnSelection = ta.getColor(R.styleable.SegmentedButton_sb_drawableTint_onSelection, Color.WHITE);
-        hasDrawableTintOnSelection = ta.hasValue(R.styleable.SegmentedButton_sb_drawableTint_onSelection);
-
-        textColorOnSelection = ta.getColor(R.styleable.SegmentedButton_sb_textColor_onSelection, Color.WHITE);
-        hasTextColorOnSelection = ta.hasValue(R.styleable.SegmentedButton_sb_textColor_onSelection);
-
-        rippleColor = ta.getColor(R.styleable.SegmentedButton_sb_rippleColor, 0);
-        hasRipple = ta.hasValue(R.styleable.SegmentedButton_sb_rippleColor);
-
         text = ta.getString(R.styleable.SegmentedButton_sb_text);
         hasText = ta.hasValue(R.styleable.SegmentedButton_sb_text);
-        textSize = ta.getDimension(R.styleable.SegmentedButton_sb_textSize, ConversionHelper.spToPx(getContext(), 14));
-        textColor = ta.getColor(R.styleable.SegmentedButton_sb_textColor, Color.GRAY);
-        textTypefacePath = ta.getString(R.styleable.SegmentedButton_sb_textTypefacePath);
-        hasTextTypefacePath = ta.hasValue(R.styleable.SegmentedButton_sb_textTypefacePath);
-        int typeface = ta.getInt(R.styleable.SegmentedButton_sb_textTypeface, 1);
-        switch (typeface) {
-            case 0:
-                textTypeface = Typeface.MONOSPACE;
-                break;
-            case 1:
-                textTypeface = Typeface.DEFAULT;
-                break;
-            case 2:
-                textTypeface = Typeface.SANS_SERIF;
-                break;
-            case 3:
-                textTypeface = Typeface.SERIF;
-                break;
-        }
 
         try {
             hasWeight = ta.hasValue(R.styleable.SegmentedButton_android_layout_weight);
@@ -471,24 +657,15 @@ public class SegmentedButton extends View {
         }
         hasWidth = !hasWeight && buttonWidth > 0;
 
-
-        drawable = ta.getResourceId(R.styleable.SegmentedButton_sb_drawable, 0);
-        drawableTint = ta.getColor(R.styleable.SegmentedButton_sb_drawableTint, -1);
-        drawableWidth = ta.getDimensionPixelSize(R.styleable.SegmentedButton_sb_drawableWidth, -1);
-        drawableHeight = ta.getDimensionPixelSize(R.styleable.SegmentedButton_sb_drawableHeight, -1);
-        drawablePadding = ta.getDimensionPixelSize(R.styleable.SegmentedButton_sb_drawablePadding, 0);
-
         hasDrawable = ta.hasValue(R.styleable.SegmentedButton_sb_drawable);
-        hasDrawableTint = ta.hasValue(R.styleable.SegmentedButton_sb_drawableTint);
-        hasDrawableWidth = ta.hasValue(R.styleable.SegmentedButton_sb_drawableWidth);
-        hasDrawableHeight = ta.hasValue(R.styleable.SegmentedButton_sb_drawableHeight);
-
-        drawableGravity = DrawableGravity.getById(ta.getInteger(R.styleable.SegmentedButton_sb_drawableGravity, 0));
-
+        if (hasDrawable)
+            drawable = ta.getResourceId(R.styleable.SegmentedButton_sb_drawable, 0);
 
         ta.recycle();
     }
 
+    private int drawable;
+
     /**
      * Typeface.NORMAL: 0
      * Typeface.BOLD: 1
@@ -498,24 +675,93 @@ public class SegmentedButton extends View {
      * @param typeface you can use above variations using the bitwise OR operator
      */
     public void setTypeface(Typeface typeface) {
-        mTextPaint.setTypeface(typeface);
+        pendingTypefacePath = null;
+        style = style.buildUpon().setTypeface(typeface).setTypefacePath(null, false).build();
+        mTextPaint = style.textPaint;
+        updateTextLayout();
     }
 
     /**
      * @param location is .ttf file's path in assets folder. Example: 'fonts/my_font.ttf'
      */
     public void setTypeface(String location) {
-        if (null != location && !location.equals("")) {
-            Typeface typeface = Typeface.createFromAsset(getContext().getAssets(), location);
-            mTextPaint.setTypeface(typeface);
+        setTypeface(location, false);
+    }
+
+    /**
+     * Typefaces are cached by their path, so buttons using the same font share one typeface.
+     *
+     * @param location is .ttf file's path in assets folder. Example: 'fonts/my_font.ttf'
+     * @param async    if true and the typeface is not cached yet, it is loaded on a background thread and
+     *                 the button keeps its current typeface until then
+     */
+    public void setTypeface(String location, boolean async) {
+        if (null == location || location.equals(""))
+            return;
+
+        pendingTypefacePath = location;
+        if (async) {
+            TypefaceCache.getAsync(getContext().getAssets(), location, typefaceCallback);
+        } else {
+            typefaceCallback.onTypefaceLoaded(location, TypefaceCache.get(getContext().getAssets(), location));
         }
     }
 
+    private String pendingTypefacePath;
+
+    private final TypefaceCache.Callback typefaceCallback = new TypefaceCache.Callback() {
+        @Override
+        public void onTypefaceLoaded(String path, Typeface typeface) {
+            // a newer typeface may have been set while this one was loading
+            if (null == typeface || !path.equals(pendingTypefacePath))
+                return;
+            pendingTypefacePath = null;
+            mTextPaint = style.getTextPaint(typeface);
+            updateTextLayout();
+        }
+    };
+
     /**
-     * GRAVITY
+     * @param text is shown on the button, null removes the text
      */
+    public void setText(String text) {
+        if (null == text ? null == this.text : text.equals(this.text))
+            return;
 
-    private DrawableGravity drawableGravity;
+        this.text = text;
+        hasText = null != text;
+        if (hasText) {
+            mTextWidth = (int) mTextPaint.measureText(text);
+            mStaticLayout = TextLayoutCache.obtain(text, mTextPaint, mTextWidth);
+        } else {
+            mStaticLayout = null;
+        }
+        measureCache.invalidate();
+        requestLayout();
+        invalidate();
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * Cached layouts keep a copy of the paint, so a new layout is needed after text metrics change
+     */
+    private void updateTextLayout() {
+        if (null == mStaticLayout)
+            return;
+
+        mTextWidth = (int) mTextPaint.measureText(text);
+        mStaticLayout = TextLayoutCache.obtain(text, mTextPaint, mTextWidth);
+        measureCache.invalidate();
+        requestLayout();
+        invalidate();
+    }
+
+    /**
+     * GRAVITY
+     */
 
     public enum DrawableGravity {
         LEFT(0),
@@ -558,13 +804,24 @@ public class SegmentedButton extends View {
     }
 
     /**
-     * Sets button's drawable by given drawable object and its position
+     * Sets button's drawable by given drawable object and its position. The button draws its own copy,
+     * so the given drawable and others of the same resource are left as they are.
      *
      * @param drawable is your drawable object
      */
     public void setDrawable(Drawable drawable){
-        mDrawable = drawable;
-        hasDrawable = true;
+        if (null != mDrawable)
+            mDrawable.setCallback(null);
+        if (null == drawable) {
+            mDrawable = null;
+        } else {
+            Drawable.ConstantState state = drawable.getConstantState();
+            mDrawable = (null != state ? state.newDrawable(getResources()) : drawable).mutate();
+            mDrawable.setCallback(this);
+        }
+        hasDrawable = null != mDrawable;
+        invalidateIcons();
+        measureCache.invalidate();
         requestLayout();
     }
 
@@ -579,22 +836,29 @@ public class SegmentedButton extends View {
      *                {DrawableGravity.BOTTOM} sets drawable to the bottom of button's text
      */
     public void setGravity(DrawableGravity gravity) {
-        drawableGravity = gravity;
+        style = style.buildUpon().setDrawableGravity(gravity).build();
+        measureCache.invalidate();
+        requestLayout();
     }
 
     /**
      * removes drawable's tint
      */
     public void removeDrawableTint() {
-        hasDrawableTint = false;
+        style = style.buildUpon().setDrawableTint(null).build();
+        invalidateIcons();
+        invalidateSnapshots();
     }
 
     public void removeDrawableTintOnSelection() {
-        hasDrawableTintOnSelection = false;
+        style = style.buildUpon().setDrawableTintOnSelection(null).build();
+        invalidateIcons();
+        invalidateSnapshots();
     }
 
     public void removeTextColorOnSelection() {
-        hasTextColorOnSelection = false;
+        style = style.buildUpon().setTextColorOnSelection(null).build();
+        invalidateSnapshots();
     }
 
     /**
@@ -603,63 +867,66 @@ public class SegmentedButton extends View {
      * @param color is used to set drawable's tint color
      */
     public void setDrawableTint(int color) {
-        drawableTint = color;
+        style = style.buildUpon().setDrawableTint(color).build();
+        invalidateIcons();
+        invalidateSnapshots();
     }
 
     /**
      * @return button's current ripple color
      */
     public int getRippleColor() {
-        return rippleColor;
+        return style.rippleColor;
     }
 
     /**
      * @return true if the button has a ripple effect
      */
     public boolean hasRipple() {
-        return hasRipple;
+        return style.hasRipple;
     }
 
     /**
      * @return button's text color when selector is on the button
      */
     public int getTextColorOnSelection() {
-        return textColorOnSelection;
+        return style.textColorOnSelection;
     }
 
     /**
      * @param textColorOnSelection set button's text color when selector is on the button
      */
     public void setTextColorOnSelection(int textColorOnSelection) {
-        this.textColorOnSelection = textColorOnSelection;
+        style = style.buildUpon().setTextColorOnSelection(textColorOnSelection).build();
+        invalidateSnapshots();
     }
 
     /**
      * @return drawable's tint color when selector is on the button
      */
     public int getDrawableTintOnSelection() {
-        return drawableTintOnSelection;
+        return style.drawableTintOnSelection;
     }
 
     /**
      * @return drawable's tint color
      */
     public int getDrawableTint() {
-        return drawableTint;
+        return style.drawableTint;
     }
 
     /**
      * @return true if button's drawable is not empty
      */
     public boolean hasDrawableTint() {
-        return hasDrawableTint;
+        return style.hasDrawableTint;
     }
 
     /**
      * @return true if button's drawable has tint when selector is on the button
      */
     public boolean hasDrawableTintOnSelection() {
-        return hasDrawableTintOnSelection;
+        return style.hasDrawableTintOnSelection;
     }
 
     /**
@@ -682,6 +949,6 @@ public class SegmentedButton extends View {
     }
 
     boolean hasTextColorOnSelection() {
-        return hasTextColorOnSelection;
+        return style.hasTextColorOnSelection;
     }
 }
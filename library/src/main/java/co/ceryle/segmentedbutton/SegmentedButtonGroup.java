@@ -15,9 +15,12 @@
  */
 package co.ceryle.segmentedbutton;
 
+import android.animation.Animator;
+import android.animation.AnimatorListenerAdapter;
 import android.animation.ValueAnimator;
 import android.annotation.TargetApi;
 import android.content.Context;
+import android.content.res.Resources;
 import android.content.res.TypedArray;
 import android.graphics.Canvas;
 import android.graphics.Color;
@@ -28,29 +31,24 @@ import android.graphics.drawable.Drawable;
 import android.os.Build;
 import android.os.Bundle;
 import android.os.Parcelable;
-import android.support.v4.view.animation.FastOutLinearInInterpolator;
 import android.support.v4.view.animation.FastOutSlowInInterpolator;
-import android.support.v4.view.animation.LinearOutSlowInInterpolator;
 import android.util.AttributeSet;
 import android.util.Log;
 import android.view.MotionEvent;
+import android.view.VelocityTracker;
 import android.view.View;
+import android.view.ViewConfiguration;
 import android.view.ViewGroup;
 import android.view.ViewOutlineProvider;
-import android.view.animation.AccelerateDecelerateInterpolator;
-import android.view.animation.AccelerateInterpolator;
-import android.view.animation.AnticipateInterpolator;
-import android.view.animation.AnticipateOvershootInterpolator;
+import android.view.ViewParent;
 import android.view.animation.BounceInterpolator;
-import android.view.animation.CycleInterpolator;
-import android.view.animation.DecelerateInterpolator;
 import android.view.animation.Interpolator;
 import android.view.animation.LinearInterpolator;
-import android.view.animation.OvershootInterpolator;
-import android.widget.FrameLayout;
 import android.widget.LinearLayout;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 
 public class SegmentedButtonGroup extends LinearLayout {
 
@@ -69,63 +67,193 @@ public class SegmentedButtonGroup extends LinearLayout {
         init(attrs);
     }
 
+    /**
+     * Creates a group without parsing any attributes
+     *
+     * @param style is shared with other groups, e.g. one from {@link SegmentedGroupStyle#obtain(Context, int)}
+     */
+    public SegmentedButtonGroup(Context context, SegmentedGroupStyle style) {
+        super(context);
+        applyStyle(style);
+        getAttributes(null);
+        initGroup();
+    }
+
     @TargetApi(Build.VERSION_CODES.LOLLIPOP)
     public SegmentedButtonGroup(Context context, AttributeSet attrs, int defStyleAttr, int defStyleRes) {
         super(context, attrs, defStyleAttr, defStyleRes);
     }
 
-    private LinearLayout mainGroup, rippleContainer, dividerContainer;
-
     private boolean draggable = false;
 
     @Override
     public boolean onTouchEvent(MotionEvent event) {
-        float selectorWidth, offsetX;
-        int position = 0;
-
-        switch (event.getAction()) {
-            case MotionEvent.ACTION_UP:
-
-                selectorWidth = (float) getWidth() / numberOfButtons / 2f;
-                offsetX = ((event.getX() - selectorWidth) * numberOfButtons) / getWidth();
-                position = (int) Math.floor(offsetX + 0.5);
-
-                toggledPositionOffset = lastPositionOffset = offsetX;
-
-                toggle(position, animateSelectorDuration, true);
+        if (!clickable || !enabled)
+            return true;
+
+        if (draggable) {
+            if (null == velocityTracker)
+                velocityTracker = VelocityTracker.obtain();
+            // historical samples batched into the event are added by the tracker as well
+            velocityTracker.addMovement(event);
+        }
 
-                break;
+        switch (event.getActionMasked()) {
             case MotionEvent.ACTION_DOWN:
+                downX = event.getX();
+                downY = event.getY();
+                // a scrolling parent checks moves against the same slop, it must not take a selector drag over
+                holdingParent = draggable && selectorRect.contains(event.getX(), event.getY());
+                if (holdingParent)
+                    requestParentDisallowIntercept(true);
+                if (singleRipple) {
+                    int segment = getSegmentAt(event.getX());
+                    if (segment >= 0)
+                        pressGroupRipple(segment, event.getX(), event.getY());
+                }
                 break;
             case MotionEvent.ACTION_MOVE:
-
                 if (!draggable)
                     break;
 
-                selectorWidth = (float) getWidth() / numberOfButtons / 2f;
-
-                offsetX = ((event.getX() - selectorWidth) * numberOfButtons) / (float) getWidth();
-                position = (int) Math.floor(offsetX);
-                offsetX -= position;
+                if (!dragging) {
+                    float dx = Math.abs(event.getX() - downX);
+                    float dy = Math.abs(event.getY() - downY);
+                    if (holdingParent && dy > touchSlop && dy > dx) {
+                        // not a selector drag, parent may scroll
+                        holdingParent = false;
+                        requestParentDisallowIntercept(false);
+                        break;
+                    }
+                    if (dx <= touchSlop)
+                        break;
+                    startDrag();
+                }
 
-                if (event.getRawX() - selectorWidth < getLeft()) {
-                    offsetX = 0;
-                    animateViews(position + 1, offsetX);
-                    break;
+                // moves are applied once per frame, only the latest position matters
+                dragX = event.getX();
+                if (!dragFramePosted) {
+                    dragFramePosted = true;
+                    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN)
+                        postOnAnimation(dragFrame);
+                    else
+                        postDelayed(dragFrame, DRAG_FRAME_DELAY);
                 }
-                if (event.getRawX() + selectorWidth > getRight()) {
-                    offsetX = 1;
-                    animateViews(position - 1, offsetX);
-                    break;
+                break;
+            case MotionEvent.ACTION_UP:
+                if (singleRipple)
+                    releaseGroupRipple();
+
+                if (dragging) {
+                    dragX = event.getX();
+                    applyDrag();
+
+                    // selector is released from where the finger left it and settles by its velocity
+                    velocityTracker.computeCurrentVelocity(1000);
+                    float velocity = velocityTracker.getXVelocity() / geometry.getStepWidth(selectorPosition);
+                    fling(selectorPosition, velocity);
+                } else {
+                    int position = getSegmentAt(event.getX());
+                    if (position >= 0)
+                        toggle(position, animateSelectorDuration, true);
                 }
 
-                animateViews(position, offsetX);
+                endDrag();
+                break;
+            case MotionEvent.ACTION_CANCEL:
+                if (singleRipple)
+                    releaseGroupRipple();
+
+                // a cancelled drag goes back to the selected button
+                if (dragging) {
+                    removeCallbacks(dragFrame);
+                    dragFramePosted = false;
+                    startSelectorSpring(selectorPosition, 0, toggledPosition);
+                }
 
+                endDrag();
                 break;
         }
         return true;
     }
 
+    private static final long DRAG_FRAME_DELAY = 16;
+
+    private int touchSlop;
+    private float downX, downY, dragX;
+    private boolean dragFramePosted, holdingParent;
+
+    private void requestParentDisallowIntercept(boolean disallowIntercept) {
+        ViewParent parent = getParent();
+        if (null != parent)
+            parent.requestDisallowInterceptTouchEvent(disallowIntercept);
+    }
+
+    private final Runnable dragFrame = new Runnable() {
+        @Override
+        public void run() {
+            if (dragFramePosted && dragging)
+                applyDrag();
+        }
+    };
+
+    /**
+     * Drag starts once the finger moved past touch slop. From then on parents may not intercept,
+     * so a scrolling container does not take the gesture over. A touch that starts on the selector holds
+     * the parent off from the start, since the parent would reach the same slop first.
+     */
+    private void startDrag() {
+        dragging = true;
+        requestParentDisallowIntercept(true);
+        if (singleRipple)
+            releaseGroupRipple();
+
+        prepareSnapshots();
+        cancelSelectorAnimation();
+        updateAnimationState();
+    }
+
+    private void applyDrag() {
+        dragFramePosted = false;
+        removeCallbacks(dragFrame);
+
+        float offset = getDragOffset(dragX);
+        animateViews((int) offset, offset - (int) offset);
+    }
+
+    private void endDrag() {
+        dragging = false;
+        holdingParent = false;
+        recycleVelocityTracker();
+        updateAnimationState();
+    }
+
+    private void cancelDrag() {
+        removeCallbacks(dragFrame);
+        dragFramePosted = false;
+        dragging = false;
+        holdingParent = false;
+        recycleVelocityTracker();
+    }
+
+    /**
+     * @return selector position that centers the selector under x, in view coordinates
+     */
+    private float getDragOffset(float x) {
+        if (!geometry.isValid(numberOfButtons))
+            return selectorPosition;
+        return geometry.positionAt(x - getPaddingLeft());
+    }
+
+    private VelocityTracker velocityTracker;
+
+    private void recycleVelocityTracker() {
+        if (null != velocityTracker) {
+            velocityTracker.recycle();
+            velocityTracker = null;
+        }
+    }
+
     @TargetApi(Build.VERSION_CODES.LOLLIPOP)
     private class ButtonOutlineProvider extends ViewOutlineProvider {
         @Override
@@ -135,44 +263,22 @@ public class SegmentedButtonGroup extends LinearLayout {
     }
 
     private void init(AttributeSet attrs) {
+        applyStyle(SegmentedGroupStyle.obtain(getContext(), attrs));
         getAttributes(attrs);
+        initGroup();
+    }
+
+    private void initGroup() {
         setWillNotDraw(false);
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
             setOutlineProvider(new ButtonOutlineProvider());
         }
 
         setClickable(true);
+        touchSlop = ViewConfiguration.get(getContext()).getScaledTouchSlop();
 
         buttons = new ArrayList<>();
 
-        FrameLayout container = new FrameLayout(getContext());
-        container.setLayoutParams(new LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
-        addView(container);
-
-        mainGroup = new LinearLayout(getContext());
-        mainGroup.setLayoutParams(new FrameLayout.LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.WRAP_CONTENT));
-        mainGroup.setOrientation(LinearLayout.HORIZONTAL);
-        container.addView(mainGroup);
-
-        rippleContainer = new LinearLayout(getContext());
-        rippleContainer.setLayoutParams(new FrameLayout.LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.MATCH_PARENT));
-        rippleContainer.setOrientation(LinearLayout.HORIZONTAL);
-        rippleContainer.setClickable(false);
-        rippleContainer.setFocusable(false);
-        rippleContainer.setPadding(borderSize, borderSize, borderSize, borderSize);
-        container.addView(rippleContainer);
-
-        dividerContainer = new LinearLayout(getContext());
-        dividerContainer.setLayoutParams(new FrameLayout.LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.MATCH_PARENT));
-        dividerContainer.setOrientation(LinearLayout.HORIZONTAL);
-        dividerContainer.setClickable(false);
-        dividerContainer.setFocusable(false);
-        container.addView(dividerContainer);
-
-        initInterpolations();
-        setContainerAttrs();
-        setDividerAttrs();
-
         rectF = new RectF();
         paint = new Paint(Paint.ANTI_ALIAS_FLAG);
     }
@@ -200,6 +306,73 @@ public class SegmentedButtonGroup extends LinearLayout {
             paint.setStrokeWidth(borderSize);
             canvas.drawRoundRect(rectF, radius, radius, paint);
         }
+
+        drawSelector(canvas);
+    }
+
+    private RectF selectorRect = new RectF();
+    private Paint selectorPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+    /**
+     * Selector is drawn once by the group at its interpolated position, buttons only draw their content
+     */
+    private void drawSelector(Canvas canvas) {
+        lastFrameInvalidatedPixels = invalidatedPixels;
+        lastFrameInvalidatedViews = invalidatedViews;
+        invalidatedPixels = invalidatedViews = 0;
+
+        if (!getSelectorBounds(selectorPosition, selectorRect)) {
+            selectorRect.setEmpty();
+            return;
+        }
+
+        selectorPaint.setColor(selectorColor);
+        canvas.drawRoundRect(selectorRect, radius, radius, selectorPaint);
+    }
+
+    /**
+     * @return false if segments are not measured yet
+     */
+    private boolean getSelectorBounds(float selectorPosition, RectF bounds) {
+        if (!geometry.isValid(numberOfButtons))
+            return false;
+
+        float left = getPaddingLeft() + geometry.getSelectorLeft(selectorPosition);
+        float right = getPaddingLeft() + geometry.getSelectorRight(selectorPosition);
+
+        bounds.set(Math.max(left, getPaddingLeft() + borderSize), getPaddingTop() + borderSize,
+                Math.min(right, getWidth() - getPaddingRight() - borderSize), getHeight() - getPaddingBottom() - borderSize);
+        return true;
+    }
+
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+        super.dispatchDraw(canvas);
+
+        if (singleRipple && null != groupRipple && clickable && enabled)
+            groupRipple.draw(canvas);
+
+        drawDividers(canvas);
+
+        if (selectorRect.isEmpty())
+            return;
+
+        // Selected look of the buttons under the selector
+        canvas.save();
+        canvas.clipRect(selectorRect);
+        for (int i = 0; i < numberOfButtons; i++) {
+            SegmentedButton button = buttons.get(i);
+            if (button.getVisibility() != VISIBLE)
+                continue;
+            if (button.getRight() <= selectorRect.left || button.getLeft() >= selectorRect.right)
+                continue;
+
+            canvas.save();
+            canvas.translate(button.getLeft(), button.getTop());
+            button.drawContent(canvas, true);
+            canvas.restore();
+        }
+        canvas.restore();
     }
 
     private void setBackgroundColor(View v, Drawable d, int c) {
@@ -210,15 +383,57 @@ public class SegmentedButtonGroup extends LinearLayout {
         }
     }
 
-    private void setDividerAttrs() {
-        if (!hasDivider)
+    private Drawable dividerDrawable;
+    /**
+     * Divider setters only mark the drawable invalid, it is rebuilt once in the next draw pass
+     * no matter how many of them are called.
+     */
+    private boolean dividerInvalid = true;
+    /**
+     * Alpha the divider drawable was authored with, fading near the selector scales it instead of replacing it.
+     */
+    private int dividerAlpha = 255;
+
+    private Drawable obtainDividerDrawable() {
+        if (dividerInvalid) {
+            dividerDrawable = RoundHelper.makeDividerRound(dividerColor, dividerRadius, dividerSize, dividerBackgroundDrawable);
+            dividerAlpha = Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT ? dividerDrawable.getAlpha() : 255;
+            dividerInvalid = false;
+        }
+        return dividerDrawable;
+    }
+
+    /**
+     * Dividers are drawn by the group at segment boundaries, over the buttons.
+     * With dividerFadeNearSelector, dividers closer to the selector than half of its width fade out.
+     */
+    private void drawDividers(Canvas canvas) {
+        if (!hasDivider || numberOfButtons < 2 || !geometry.isValid(numberOfButtons))
             return;
-        dividerContainer.setShowDividers(LinearLayout.SHOW_DIVIDER_MIDDLE);
-        // Divider Views
-        RoundHelper.makeDividerRound(dividerContainer, dividerColor, dividerRadius, dividerSize, dividerBackgroundDrawable);
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH) {
-            dividerContainer.setDividerPadding(dividerPadding);
+
+        Drawable divider = obtainDividerDrawable();
+
+        int width = divider.getIntrinsicWidth() > 0 ? divider.getIntrinsicWidth() : dividerSize;
+        int top = getPaddingTop() + dividerPadding;
+        int bottom = getHeight() - getPaddingBottom() - dividerPadding;
+        float fadeDistance = selectorRect.width() / 2f;
+
+        for (int i = 1; i < numberOfButtons; i++) {
+            int x = getPaddingLeft() + geometry.getStart(i);
+
+            int alpha = dividerAlpha;
+            if (dividerFadeNearSelector && fadeDistance > 0) {
+                float distance = Math.max(0, Math.max(selectorRect.left - x, x - selectorRect.right));
+                alpha = (int) (dividerAlpha * Math.min(1f, distance / fadeDistance));
+                if (alpha == 0)
+                    continue;
+            }
+
+            divider.setBounds(x - width / 2, top, x - width / 2 + width, bottom);
+            divider.setAlpha(alpha);
+            divider.draw(canvas);
         }
+        divider.setAlpha(dividerAlpha);
     }
 
     private int numberOfButtons = 0;
@@ -230,9 +445,7 @@ public class SegmentedButtonGroup extends LinearLayout {
             SegmentedButton button = (SegmentedButton) child;
             final int position = numberOfButtons++;
 
-            button.setSelectorColor(selectorColor);
-            button.setSelectorRadius(radius);
-            button.setBorderSize(borderSize);
+            setupButton(button);
 
             if (position == 0)
                 button.hasBorderLeft(true);
@@ -243,47 +456,543 @@ public class SegmentedButtonGroup extends LinearLayout {
             button.hasBorderRight(true);
 
 
-            mainGroup.addView(child, params);
+            super.addView(child, -1, params);
             buttons.add(button);
+            segmentSpecs.add(null);
 
             if (this.position == position) {
-                button.clipToRight(1);
-
-                lastPosition = toggledPosition = position;
-                lastPositionOffset = toggledPositionOffset = (float) position;
+                toggledPosition = position;
+                selectorPosition = toggledPositionOffset = (float) position;
             }
 
             // RIPPLE
-            BackgroundView rippleView = new BackgroundView(getContext());
-            if (!draggable) {
-                rippleView.setOnClickListener(new OnClickListener() {
-                    @Override
-                    public void onClick(View v) {
-                        if (clickable && enabled)
-                            toggle(position, animateSelectorDuration, true);
-                    }
-                });
+            if (!singleRipple)
+                ripples.add(addRippleView(-1, false));
+        } else
+            super.addView(child, index, params);
+    }
+
+    private void setupButton(SegmentedButton button) {
+        button.setSelectorColor(selectorColor);
+        button.setSelectorRadius(radius);
+        button.setBorderSize(borderSize);
+        button.setDrawnByGroup(true);
+        button.setSnapshotsEnabled(animationSnapshots);
+    }
+
+    private ArrayList<BackgroundView> ripples = new ArrayList<>();
+
+    /**
+     * Ripple views find their segment when clicked, so they stay correct when segments are moved or removed
+     */
+    private BackgroundView addRippleView(int index, boolean inLayout) {
+        BackgroundView rippleView = new BackgroundView(getContext());
+        if (!draggable) {
+            rippleView.setOnClickListener(new OnClickListener() {
+                @Override
+                public void onClick(View v) {
+                    int position = ripples.indexOf(v);
+                    if (clickable && enabled && position >= 0)
+                        toggle(position, animateSelectorDuration, true);
+                }
+            });
+        }
+
+        setRipple(rippleView, enabled && clickable);
+        LayoutParams params = new LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT);
+        if (inLayout)
+            addViewInLayout(rippleView, index, params, true);
+        else
+            super.addView(rippleView, index, params);
+        return rippleView;
+    }
+
+    /**
+     * Specs of the buttons, null for buttons that were added as views
+     */
+    private ArrayList<SegmentSpec> segmentSpecs = new ArrayList<>();
+
+    private SegmentedButtonStyle segmentStyle;
+
+    /**
+     * @param segmentStyle is shared by buttons that {@link #setSegments(List)} creates from now on,
+     *                     null for the default style of the theme
+     */
+    public void setSegmentStyle(SegmentedButtonStyle segmentStyle) {
+        this.segmentStyle = segmentStyle;
+    }
+
+    /**
+     * Updates segments to the given list. Segments are matched to the current ones by id: a matching button
+     * is reused and only changed text or drawable is applied to it, new segments get new buttons, and buttons
+     * of segments that are gone are removed. Buttons added as views have no id and are replaced.
+     * <p>
+     * The selected segment stays selected if it is still in the list, otherwise the selection is clamped.
+     * Everything is applied before a single layout pass.
+     *
+     * @param segments are the segments to show, their ids must be unique
+     */
+    public void setSegments(List<SegmentSpec> segments) {
+        cancelSelectorAnimation();
+        updateAnimationState();
+
+        String selectedId = position >= 0 && position < numberOfButtons && null != segmentSpecs.get(position)
+                ? segmentSpecs.get(position).getId() : null;
+
+        HashMap<String, Integer> currentIndexes = new HashMap<>();
+        for (int i = 0; i < numberOfButtons; i++) {
+            SegmentSpec spec = segmentSpecs.get(i);
+            if (null != spec)
+                currentIndexes.put(spec.getId(), i);
+        }
+
+        ArrayList<SegmentedButton> newButtons = new ArrayList<>(segments.size());
+        ArrayList<BackgroundView> newRipples = new ArrayList<>(segments.size());
+        ArrayList<SegmentSpec> newSpecs = new ArrayList<>(segments.size());
+        boolean[] reused = new boolean[numberOfButtons];
+        int newPosition = -1;
+
+        for (int i = 0; i < segments.size(); i++) {
+            SegmentSpec spec = segments.get(i);
+            Integer current = currentIndexes.remove(spec.getId());
+
+            SegmentedButton button;
+            BackgroundView rippleView = null;
+            if (null != current) {
+                reused[current] = true;
+                button = buttons.get(current);
+                if (!singleRipple)
+                    rippleView = ripples.get(current);
+
+                SegmentSpec currentSpec = segmentSpecs.get(current);
+                button.setText(spec.getText());
+                if (!isSameDrawable(currentSpec.getDrawable(), spec.getDrawable()))
+                    button.setDrawable(spec.getDrawable());
+            } else {
+                if (null == segmentStyle)
+                    segmentStyle = SegmentedButtonStyle.obtain(getContext(), 0);
+                button = new SegmentedButton(getContext(), segmentStyle);
+                button.setText(spec.getText());
+                if (null != spec.getDrawable())
+                    button.setDrawable(spec.getDrawable());
+                setupButton(button);
+                addViewInLayout(button, -1, new LayoutParams(0, ViewGroup.LayoutParams.MATCH_PARENT, 1), true);
+                if (!singleRipple)
+                    rippleView = addRippleView(-1, true);
             }
 
-            setRipple(rippleView, enabled && clickable);
-            rippleContainer.addView(rippleView,
-                    new LinearLayout.LayoutParams(button.getButtonWidth(), ViewGroup.LayoutParams.MATCH_PARENT, button.getWeight()));
-            ripples.add(rippleView);
+            if (spec.getId().equals(selectedId))
+                newPosition = i;
+
+            newButtons.add(button);
+            newSpecs.add(spec);
+            if (null != rippleView)
+                newRipples.add(rippleView);
+        }
+
+        for (int i = 0; i < reused.length; i++) {
+            if (reused[i])
+                continue;
+            removeViewInLayout(buttons.get(i));
+            if (!singleRipple)
+                removeViewInLayout(ripples.get(i));
+        }
+
+        buttons.clear();
+        buttons.addAll(newButtons);
+        ripples.clear();
+        ripples.addAll(newRipples);
+        segmentSpecs = newSpecs;
+        numberOfButtons = buttons.size();
+
+        for (int i = 0; i < numberOfButtons; i++) {
+            buttons.get(i).hasBorderLeft(i == 0);
+            buttons.get(i).hasBorderRight(i == numberOfButtons - 1);
+        }
+
+        if (newPosition < 0)
+            newPosition = Math.max(0, Math.min(position, numberOfButtons - 1));
+        boolean positionChanged = newPosition != position;
+        position = toggledPosition = newPosition;
+        selectorPosition = toggledPositionOffset = (float) newPosition;
+        if (null != groupRipple)
+            releaseGroupRipple();
+
+        requestLayout();
+        invalidate();
+
+        if (positionChanged && !binding && null != onPositionChangedListener)
+            onPositionChangedListener.onPositionChanged(position);
+    }
+
+    private boolean binding;
+
+    /**
+     * Shows the given position right away, for a group that is being bound to a RecyclerView row.
+     * Running animations and drags are cancelled and no listener is called.
+     */
+    public void bind(int position) {
+        stopInteraction();
+        this.position = toggledPosition = position;
+        selectorPosition = toggledPositionOffset = (float) position;
+        invalidate();
+    }
+
+    /**
+     * Same as {@link #bind(int)}, after segments are updated with {@link #setSegments(List)}.
+     * A recycled group that showed the same segments only has its texts and drawables compared.
+     */
+    public void bind(List<SegmentSpec> segments, int position) {
+        binding = true;
+        try {
+            setSegments(segments);
+        } finally {
+            binding = false;
+        }
+        bind(position);
+    }
+
+    /**
+     * Call it when the row holding the group is recycled. Animations, drags and pressed ripples are stopped,
+     * so a recycled group does not keep animating off screen.
+     */
+    public void unbind() {
+        stopInteraction();
+    }
+
+    private void stopInteraction() {
+        cancelSelectorAnimation();
+        cancelDrag();
+        if (null != groupRipple)
+            releaseGroupRipple();
+        updateAnimationState();
+        jumpDrawablesToCurrentState();
+    }
+
+    /**
+     * Groups showing the same segments - same ids, texts and drawables - return the same key, so it can be used
+     * as a RecyclerView view type and rows with the same segments reuse each other's groups through a shared
+     * RecycledViewPool. Drawables are compared by their constant state, so drawables of the same resource match.
+     *
+     * @return key of the segments set by {@link #setSegments(List)}
+     */
+    public int getSegmentSetKey() {
+        return getSegmentSetKey(segmentSpecs);
+    }
+
+    /**
+     * @param segments are the segments a row is going to bind
+     * @return key equal to {@link #getSegmentSetKey()} of a group showing these segments
+     */
+    public static int getSegmentSetKey(List<SegmentSpec> segments) {
+        int key = 1;
+        for (int i = 0; i < segments.size(); i++) {
+            SegmentSpec spec = segments.get(i);
+            if (null == spec) {
+                key = 31 * key;
+                continue;
+            }
+            key = 31 * key + spec.getId().hashCode();
+            key = 31 * key + (null != spec.getText() ? spec.getText().hashCode() : 0);
+            key = 31 * key + getDrawableKey(spec.getDrawable());
+        }
+        return key;
+    }
+
+    /**
+     * Drawables of the same resource share a constant state, buttons keep their own copies of them
+     */
+    private static boolean isSameDrawable(Drawable drawable, Drawable other) {
+        if (drawable == other)
+            return true;
+        if (null == drawable || null == other)
+            return false;
+        Drawable.ConstantState state = drawable.getConstantState();
+        return null != state && state == other.getConstantState();
+    }
 
-            if (!hasDivider)
+    private static int getDrawableKey(Drawable drawable) {
+        if (null == drawable)
+            return 0;
+        Drawable.ConstantState state = drawable.getConstantState();
+        return System.identityHashCode(null != state ? state : drawable);
+    }
+
+    /**
+     * In single ripple mode the group owns one ripple drawable instead of a ripple view per segment.
+     * Its bounds and hotspot move to the touched segment when a touch starts.
+     */
+    private Drawable groupRipple, themeRipple, colorRipple;
+    private int colorRippleColor;
+    private boolean singleRipple;
+
+    private Drawable obtainGroupRipple(int segment) {
+        int color;
+        if (hasRippleColor) {
+            color = rippleColor;
+        } else if (ripple) {
+            if (null == themeRipple)
+                themeRipple = RippleHelper.getSelectableItemBackground(getContext());
+            return themeRipple;
+        } else if (buttons.get(segment).hasRipple()) {
+            color = buttons.get(segment).getRippleColor();
+        } else {
+            return null;
+        }
+
+        if (null == colorRipple || colorRippleColor != color) {
+            colorRipple = RippleHelper.obtainRipple(color, null, radius);
+            colorRippleColor = color;
+        }
+        return colorRipple;
+    }
+
+    private void pressGroupRipple(int segment, float x, float y) {
+        Drawable drawable = obtainGroupRipple(segment);
+        if (drawable != groupRipple) {
+            if (null != groupRipple) {
+                groupRipple.setCallback(null);
+                groupRipple.setState(EMPTY_STATE_SET);
+            }
+            groupRipple = drawable;
+            if (null == groupRipple)
                 return;
+            groupRipple.setCallback(this);
+        }
 
-            BackgroundView dividerView = new BackgroundView(getContext());
-            dividerContainer.addView(dividerView,
-                    new LinearLayout.LayoutParams(button.getButtonWidth(), ViewGroup.LayoutParams.MATCH_PARENT, button.getWeight()));
-        } else
-            super.addView(child, index, params);
+        if (null == groupRipple)
+            return;
+
+        groupRipple.setBounds(getPaddingLeft() + Math.max(geometry.getStart(segment), borderSize), getPaddingTop() + borderSize,
+                Math.min(getPaddingLeft() + geometry.getEnd(segment), getWidth() - getPaddingRight() - borderSize),
+                getHeight() - getPaddingBottom() - borderSize);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP)
+            groupRipple.setHotspot(x, y);
+        groupRipple.setState(PRESSED_ENABLED_STATE_SET);
     }
 
-    private ArrayList<BackgroundView> ripples = new ArrayList<>();
+    private void releaseGroupRipple() {
+        if (null != groupRipple)
+            groupRipple.setState(ENABLED_STATE_SET);
+    }
+
+    /**
+     * @return segment under the given x coordinate, or -1 if segments are not measured yet
+     */
+    private int getSegmentAt(float x) {
+        if (!geometry.isValid(numberOfButtons))
+            return -1;
+        return geometry.segmentAt(x - getPaddingLeft());
+    }
+
+    @Override
+    protected boolean verifyDrawable(Drawable who) {
+        return who == groupRipple || super.verifyDrawable(who);
+    }
+
+    @Override
+    public void jumpDrawablesToCurrentState() {
+        super.jumpDrawablesToCurrentState();
+        if (null != groupRipple)
+            groupRipple.jumpToCurrentState();
+    }
+
+    /**
+     * @param singleRipple if true, group draws one ripple on the touched segment instead of keeping
+     *                     a ripple view for each segment
+     */
+    public void setSingleRipple(boolean singleRipple) {
+        if (this.singleRipple == singleRipple)
+            return;
+        this.singleRipple = singleRipple;
+
+        if (singleRipple) {
+            for (BackgroundView rippleView : ripples)
+                removeView(rippleView);
+            ripples.clear();
+        } else {
+            if (null != groupRipple) {
+                groupRipple.setCallback(null);
+                groupRipple = null;
+            }
+            for (int i = 0; i < numberOfButtons; i++)
+                ripples.add(addRippleView(indexOfChild(buttons.get(i)) + 1, false));
+        }
+        requestLayout();
+        invalidate();
+    }
+
+    public boolean isSingleRipple() {
+        return singleRipple;
+    }
+
+    private SegmentGeometry geometry = new SegmentGeometry();
+
+    /**
+     * Segments are measured by the group itself in a single pass, instead of being nested in
+     * weighted LinearLayouts. Fixed and wrapped segments are measured first, then weighted
+     * segments share what is left, so every segment is measured once.
+     */
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int widthMode = MeasureSpec.getMode(widthMeasureSpec);
+        int heightMode = MeasureSpec.getMode(heightMeasureSpec);
+        int horizontalPadding = getPaddingLeft() + getPaddingRight();
+        int verticalPadding = getPaddingTop() + getPaddingBottom();
+        int availableWidth = Math.max(0, MeasureSpec.getSize(widthMeasureSpec) - horizontalPadding);
+        int availableHeight = Math.max(0, MeasureSpec.getSize(heightMeasureSpec) - verticalPadding);
+
+        geometry.setCount(numberOfButtons);
+
+        boolean hasWeights = widthMode == MeasureSpec.EXACTLY;
+        float totalWeight = 0;
+        int usedWidth = 0, maxHeight = 0;
+
+        for (int i = 0; i < numberOfButtons; i++) {
+            SegmentedButton button = buttons.get(i);
+            if (button.getVisibility() == GONE)
+                continue;
+            float weight = getSegmentWeight(button);
+            int fixedWidth = getSegmentFixedWidth(button);
+
+            if (hasWeights && weight > 0) {
+                totalWeight += weight;
+                usedWidth += fixedWidth;
+                continue;
+            }
+
+            int childWidthSpec;
+            if (fixedWidth > 0)
+                childWidthSpec = MeasureSpec.makeMeasureSpec(fixedWidth, MeasureSpec.EXACTLY);
+            else if (widthMode == MeasureSpec.UNSPECIFIED)
+                childWidthSpec = MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED);
+            else
+                childWidthSpec = MeasureSpec.makeMeasureSpec(Math.max(0, availableWidth - usedWidth), MeasureSpec.AT_MOST);
+
+            button.measure(childWidthSpec, getSegmentHeightSpec(button, heightMeasureSpec, verticalPadding));
+            usedWidth += button.getMeasuredWidth();
+            maxHeight = Math.max(maxHeight, button.getMeasuredHeight());
+        }
+
+        if (totalWeight > 0) {
+            int excess = Math.max(0, availableWidth - usedWidth);
+            for (int i = 0; i < numberOfButtons; i++) {
+                SegmentedButton button = buttons.get(i);
+                float weight = getSegmentWeight(button);
+                if (weight <= 0 || button.getVisibility() == GONE)
+                    continue;
+
+                int share = (int) (excess * weight / totalWeight);
+                excess -= share;
+                totalWeight -= weight;
+
+                int childWidthSpec = MeasureSpec.makeMeasureSpec(getSegmentFixedWidth(button) + share, MeasureSpec.EXACTLY);
+                button.measure(childWidthSpec, getSegmentHeightSpec(button, heightMeasureSpec, verticalPadding));
+                usedWidth += share;
+                maxHeight = Math.max(maxHeight, button.getMeasuredHeight());
+            }
+        }
+
+        int width = widthMode == MeasureSpec.EXACTLY ? availableWidth + horizontalPadding
+                : resolveSize(usedWidth + horizontalPadding, widthMeasureSpec);
+        int height = heightMode == MeasureSpec.EXACTLY ? availableHeight + verticalPadding
+                : resolveSize(maxHeight + verticalPadding, heightMeasureSpec);
+        int contentHeight = height - verticalPadding;
+
+        for (int i = 0; i < numberOfButtons; i++) {
+            SegmentedButton button = buttons.get(i);
+            // Gone segments take no space, like in LinearLayout
+            if (button.getVisibility() == GONE) {
+                geometry.setWidth(i, 0);
+                continue;
+            }
+            // Shorter segments are stretched so the selector has the same height on each of them
+            if (heightMode != MeasureSpec.EXACTLY && button.getMeasuredHeight() < contentHeight)
+                button.measure(MeasureSpec.makeMeasureSpec(button.getMeasuredWidth(), MeasureSpec.EXACTLY),
+                        MeasureSpec.makeMeasureSpec(contentHeight, MeasureSpec.EXACTLY));
+            geometry.setWidth(i, button.getMeasuredWidth());
+        }
+
+        int contentWidth = width - horizontalPadding;
+        for (int i = 0; i < ripples.size(); i++) {
+            int rippleLeft = Math.max(geometry.getStart(i), borderSize);
+            int rippleRight = Math.min(geometry.getEnd(i), contentWidth - borderSize);
+            ripples.get(i).measure(MeasureSpec.makeMeasureSpec(Math.max(0, rippleRight - rippleLeft), MeasureSpec.EXACTLY),
+                    MeasureSpec.makeMeasureSpec(Math.max(0, contentHeight - borderSize * 2), MeasureSpec.EXACTLY));
+        }
+
+        int overlayWidthSpec = MeasureSpec.makeMeasureSpec(contentWidth, MeasureSpec.EXACTLY);
+        int overlayHeightSpec = MeasureSpec.makeMeasureSpec(contentHeight, MeasureSpec.EXACTLY);
+        for (int i = 0; i < getChildCount(); i++) {
+            View child = getChildAt(i);
+            if (!isSegmentChild(child) && child.getVisibility() != GONE)
+                child.measure(overlayWidthSpec, overlayHeightSpec);
+        }
+
+        setMeasuredDimension(width, height);
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        int left = getPaddingLeft();
+        int top = getPaddingTop();
+        int right = r - l - getPaddingRight();
+        int bottom = b - t - getPaddingBottom();
+
+        for (int i = 0; i < numberOfButtons; i++) {
+            SegmentedButton button = buttons.get(i);
+            if (button.getVisibility() == GONE)
+                continue;
+            button.layout(left + geometry.getStart(i), top, left + geometry.getEnd(i), top + button.getMeasuredHeight());
+        }
+
+        for (int i = 0; i < ripples.size(); i++) {
+            int rippleLeft = left + Math.max(geometry.getStart(i), borderSize);
+            BackgroundView rippleView = ripples.get(i);
+            rippleView.layout(rippleLeft, top + borderSize,
+                    rippleLeft + rippleView.getMeasuredWidth(), top + borderSize + rippleView.getMeasuredHeight());
+        }
+
+        for (int i = 0; i < getChildCount(); i++) {
+            View child = getChildAt(i);
+            if (!isSegmentChild(child) && child.getVisibility() != GONE)
+                child.layout(left, top, right, bottom);
+        }
+    }
+
+    private boolean isSegmentChild(View child) {
+        return child instanceof SegmentedButton || child instanceof BackgroundView;
+    }
 
-    private void setRipple(View v, boolean isClickable) {
+    private float getSegmentWeight(SegmentedButton button) {
+        if (button.hasWeight())
+            return button.getWeight();
+        ViewGroup.LayoutParams params = button.getLayoutParams();
+        return params instanceof LinearLayout.LayoutParams ? ((LinearLayout.LayoutParams) params).weight : 0;
+    }
+
+    private int getSegmentFixedWidth(SegmentedButton button) {
+        if (button.getButtonWidth() > 0)
+            return button.getButtonWidth();
+        ViewGroup.LayoutParams params = button.getLayoutParams();
+        return null != params && params.width > 0 ? params.width : 0;
+    }
+
+    private int getSegmentHeightSpec(SegmentedButton button, int heightMeasureSpec, int verticalPadding) {
+        if (MeasureSpec.getMode(heightMeasureSpec) == MeasureSpec.EXACTLY)
+            return MeasureSpec.makeMeasureSpec(Math.max(0, MeasureSpec.getSize(heightMeasureSpec) - verticalPadding), MeasureSpec.EXACTLY);
+        ViewGroup.LayoutParams params = button.getLayoutParams();
+        int childHeight = null != params ? params.height : ViewGroup.LayoutParams.WRAP_CONTENT;
+        return getChildMeasureSpec(heightMeasureSpec, verticalPadding, childHeight);
+    }
+
+
+    private void setRipple(BackgroundView v, boolean isClickable) {
         if (isClickable) {
+            // ripple of the view is the same as before it was disabled
+            if (v.restoreBackground())
+                return;
+
             if (hasRippleColor)
                 RippleHelper.setRipple(v, rippleColor, radius);
             else if (ripple)
@@ -295,59 +1004,76 @@ public class SegmentedButtonGroup extends LinearLayout {
                 }
             }
         } else {
-            BackgroundHelper.setBackground(v, null);
+            v.saveBackground();
         }
     }
 
-    private void setContainerAttrs() {
-        if (isInEditMode())
-            mainGroup.setBackgroundColor(backgroundColor);
-    }
-
     private ArrayList<SegmentedButton> buttons;
 
+    private int animationLayer;
+
     private int selectorColor, animateSelector, animateSelectorDuration, position, backgroundColor, dividerColor, radius,
             dividerSize, rippleColor, dividerPadding, dividerRadius, borderSize, borderColor;
-    private boolean clickable, enabled, ripple, hasRippleColor, hasDivider;
+    private boolean clickable, enabled, ripple, hasRippleColor, hasDivider, dividerFadeNearSelector, animationSnapshots,
+            bakeInterpolator;
 
     private Drawable backgroundDrawable, selectorBackgroundDrawable, dividerBackgroundDrawable;
 
     /**
-     * Get attributes
-     **/
-    private void getAttributes(AttributeSet attrs) {
-        TypedArray typedArray = getContext().obtainStyledAttributes(attrs, R.styleable.SegmentedButtonGroup);
+     * Copies the values of a shared style, groups change their own copies through setters
+     */
+    private void applyStyle(SegmentedGroupStyle style) {
+        hasDivider = style.hasDivider;
+        dividerSize = style.dividerSize;
+        dividerColor = style.dividerColor;
+        dividerPadding = style.dividerPadding;
+        dividerRadius = style.dividerRadius;
+        dividerFadeNearSelector = style.dividerFadeNearSelector;
+
+        selectorColor = style.selectorColor;
+        animateSelector = style.animateSelector;
+        animateSelectorDuration = style.animateSelectorDuration;
+
+        radius = style.radius;
+        backgroundColor = style.backgroundColor;
+
+        ripple = style.ripple;
+        hasRippleColor = style.hasRippleColor;
+        rippleColor = style.rippleColor;
+
+        borderSize = style.borderSize;
+        borderColor = style.borderColor;
+
+        Resources resources = getResources();
+        backgroundDrawable = SegmentedGroupStyle.newDrawable(style.backgroundDrawable, resources);
+        selectorBackgroundDrawable = SegmentedGroupStyle.newDrawable(style.selectorBackgroundDrawable, resources);
+        dividerBackgroundDrawable = SegmentedGroupStyle.newDrawable(style.dividerBackgroundDrawable, resources);
+
+        draggable = style.draggable;
+
+        animationSnapshots = style.animationSnapshots;
+        bakeInterpolator = style.bakeInterpolator;
+        springStiffness = style.springStiffness;
+        springDampingRatio = style.springDampingRatio;
+        singleRipple = style.singleRipple;
+        animationLayer = style.animationLayer;
+    }
 
-        hasDivider = typedArray.hasValue(R.styleable.SegmentedButtonGroup_sbg_dividerSize);
-        dividerSize = typedArray.getDimensionPixelSize(R.styleable.SegmentedButtonGroup_sbg_dividerSize, 0);
-        dividerColor = typedArray.getColor(R.styleable.SegmentedButtonGroup_sbg_dividerColor, Color.WHITE);
-        dividerPadding = typedArray.getDimensionPixelSize(R.styleable.SegmentedButtonGroup_sbg_dividerPadding, 0);
-        dividerRadius = typedArray.getDimensionPixelSize(R.styleable.SegmentedButtonGroup_sbg_dividerRadius, 0);
+    /**
+     * Reads attributes of this group only, the others come from its {@link SegmentedGroupStyle}
+     */
+    private void getAttributes(AttributeSet attrs) {
+        position = 0;
+        enabled = true;
+        clickable = true;
+        if (!SegmentedGroupStyle.hasInstanceAttributes(attrs))
+            return;
 
-        selectorColor = typedArray.getColor(R.styleable.SegmentedButtonGroup_sbg_selectorColor, Color.GRAY);
-        animateSelector = typedArray.getInt(R.styleable.SegmentedButtonGroup_sbg_animateSelector, 0);
-        animateSelectorDuration = typedArray.getInt(R.styleable.SegmentedButtonGroup_sbg_animateSelectorDuration, 500);
+        TypedArray typedArray = getContext().obtainStyledAttributes(attrs, R.styleable.SegmentedButtonGroup);
 
-        radius = typedArray.getDimensionPixelSize(R.styleable.SegmentedButtonGroup_sbg_radius, 0);
         position = typedArray.getInt(R.styleable.SegmentedButtonGroup_sbg_position, 0);
-        backgroundColor = typedArray.getColor(R.styleable.SegmentedButtonGroup_sbg_backgroundColor, Color.TRANSPARENT);
-
-        ripple = typedArray.getBoolean(R.styleable.SegmentedButtonGroup_sbg_ripple, false);
-        hasRippleColor = typedArray.hasValue(R.styleable.SegmentedButtonGroup_sbg_rippleColor);
-        rippleColor = typedArray.getColor(R.styleable.SegmentedButtonGroup_sbg_rippleColor, Color.GRAY);
-
-        borderSize = typedArray.getDimensionPixelSize(R.styleable.SegmentedButtonGroup_sbg_borderSize, 0);
-        borderColor = typedArray.getColor(R.styleable.SegmentedButtonGroup_sbg_borderColor, Color.BLACK);
-
-
-        backgroundDrawable = typedArray.getDrawable(R.styleable.SegmentedButtonGroup_sbg_backgroundDrawable);
-        selectorBackgroundDrawable = typedArray.getDrawable(R.styleable.SegmentedButtonGroup_sbg_selectorBackgroundDrawable);
-        dividerBackgroundDrawable = typedArray.getDrawable(R.styleable.SegmentedButtonGroup_sbg_dividerBackgroundDrawable);
-
         enabled = typedArray.getBoolean(R.styleable.SegmentedButtonGroup_sbg_enabled, true);
 
-        draggable = typedArray.getBoolean(R.styleable.SegmentedButtonGroup_sbg_draggable, false);
-
         try {
             clickable = typedArray.getBoolean(R.styleable.SegmentedButtonGroup_android_clickable, true);
         } catch (Exception ex) {
@@ -357,29 +1083,25 @@ public class SegmentedButtonGroup extends LinearLayout {
         typedArray.recycle();
     }
 
+    /**
+     * Set with {@link #setInterpolatorSelector(Interpolator)}, if null the interpolator registered for
+     * animateSelector is looked up whenever an animation starts, so later registrations are picked up
+     */
     private Interpolator interpolatorSelector;
 
-    private void initInterpolations() {
-        ArrayList<Class> interpolatorList = new ArrayList<Class>() {{
-            add(FastOutSlowInInterpolator.class);
-            add(BounceInterpolator.class);
-            add(LinearInterpolator.class);
-            add(DecelerateInterpolator.class);
-            add(CycleInterpolator.class);
-            add(AnticipateInterpolator.class);
-            add(AccelerateDecelerateInterpolator.class);
-            add(AccelerateInterpolator.class);
-            add(AnticipateOvershootInterpolator.class);
-            add(FastOutLinearInInterpolator.class);
-            add(LinearOutSlowInInterpolator.class);
-            add(OvershootInterpolator.class);
-        }};
+    private Interpolator resolveInterpolator() {
+        return null != interpolatorSelector ? interpolatorSelector : InterpolatorRegistry.get(animateSelector);
+    }
 
-        try {
-            interpolatorSelector = (Interpolator) interpolatorList.get(animateSelector).newInstance();
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+    /**
+     * Makes a custom interpolator available to sbg_animateSelector and {@link #setSelectorAnimation(int)}.
+     * Ids of the built-in interpolators can be registered to replace them.
+     *
+     * @param id           is the value used in sbg_animateSelector
+     * @param interpolator is used by every group with the id from their next animation on, null removes it
+     */
+    public static void registerInterpolator(int id, Interpolator interpolator) {
+        InterpolatorRegistry.register(id, interpolator);
     }
 
     public final static int FastOutSlowInInterpolator = 0;
@@ -395,6 +1117,15 @@ public class SegmentedButtonGroup extends LinearLayout {
     public final static int LinearOutSlowInInterpolator = 10;
     public final static int OvershootInterpolator = 11;
 
+    public final static int AnimationLayerNone = 0;
+    public final static int AnimationLayerAlways = 1;
+    public final static int AnimationLayerAuto = 2;
+
+    /**
+     * Smallest group that gets hardware layers with {@link #AnimationLayerAuto}
+     */
+    private final static int AUTO_LAYER_MIN_BUTTONS = 4;
+
     private OnPositionChangedListener onPositionChangedListener;
 
     /**
@@ -436,8 +1167,8 @@ public class SegmentedButtonGroup extends LinearLayout {
         this.position = position;
 
         if (null == buttons) {
-            lastPosition = toggledPosition = position;
-            lastPositionOffset = toggledPositionOffset = (float) position;
+            toggledPosition = position;
+            selectorPosition = toggledPositionOffset = (float) position;
         } else {
             toggle(position, animateSelectorDuration, false);
         }
@@ -451,8 +1182,8 @@ public class SegmentedButtonGroup extends LinearLayout {
         this.position = position;
 
         if (null == buttons) {
-            lastPosition = toggledPosition = position;
-            lastPositionOffset = toggledPositionOffset = (float) position;
+            toggledPosition = position;
+            selectorPosition = toggledPositionOffset = (float) position;
         } else {
             toggle(position, duration, false);
         }
@@ -466,8 +1197,8 @@ public class SegmentedButtonGroup extends LinearLayout {
         this.position = position;
 
         if (null == buttons) {
-            lastPosition = toggledPosition = position;
-            lastPositionOffset = toggledPositionOffset = (float) position;
+            toggledPosition = position;
+            selectorPosition = toggledPositionOffset = (float) position;
         } else {
             if (withAnimation)
                 toggle(position, animateSelectorDuration, false);
@@ -482,6 +1213,7 @@ public class SegmentedButtonGroup extends LinearLayout {
      */
     public void setSelectorColor(int selectorColor) {
         this.selectorColor = selectorColor;
+        onPropertiesChanged(CHANGED_BUTTONS);
     }
 
     /**
@@ -491,6 +1223,7 @@ public class SegmentedButtonGroup extends LinearLayout {
     @Override
     public void setBackgroundColor(int backgroundColor) {
         this.backgroundColor = backgroundColor;
+        onPropertiesChanged(CHANGED_DRAW);
     }
 
     /**
@@ -498,6 +1231,7 @@ public class SegmentedButtonGroup extends LinearLayout {
      */
     public void setRipple(boolean ripple) {
         this.ripple = ripple;
+        onPropertiesChanged(CHANGED_RIPPLES);
     }
 
     /**
@@ -506,6 +1240,7 @@ public class SegmentedButtonGroup extends LinearLayout {
      */
     public void setRippleColor(int rippleColor) {
         this.rippleColor = rippleColor;
+        onPropertiesChanged(CHANGED_RIPPLES);
     }
 
     /**
@@ -514,6 +1249,7 @@ public class SegmentedButtonGroup extends LinearLayout {
      */
     public void setRippleColor(boolean hasRippleColor) {
         this.hasRippleColor = hasRippleColor;
+        onPropertiesChanged(CHANGED_RIPPLES);
     }
 
     /**
@@ -521,6 +1257,7 @@ public class SegmentedButtonGroup extends LinearLayout {
      */
     public void setRadius(int radius) {
         this.radius = radius;
+        onPropertiesChanged(CHANGED_BUTTONS | CHANGED_RIPPLES);
     }
 
     /**
@@ -528,6 +1265,20 @@ public class SegmentedButtonGroup extends LinearLayout {
      */
     public void setDividerPadding(int dividerPadding) {
         this.dividerPadding = dividerPadding;
+        onPropertiesChanged(CHANGED_DRAW);
+    }
+
+    /**
+     * @param dividerFadeNearSelector if true, dividers next to the selector fade out while it moves
+     *                                and are hidden beside the selected button
+     */
+    public void setDividerFadeNearSelector(boolean dividerFadeNearSelector) {
+        this.dividerFadeNearSelector = dividerFadeNearSelector;
+        onPropertiesChanged(CHANGED_DRAW);
+    }
+
+    public boolean isDividerFadeNearSelector() {
+        return dividerFadeNearSelector;
     }
 
     /**
@@ -542,11 +1293,13 @@ public class SegmentedButtonGroup extends LinearLayout {
      */
     public void setSelectorAnimation(int animateSelector) {
         this.animateSelector = animateSelector;
+        interpolatorSelector = null;
     }
 
     /**
      * @param interpolatorSelector is used to give an animation to selector with the given one of android's interpolator.
      *                             Ex: {@link FastOutSlowInInterpolator}, {@link BounceInterpolator}, {@link LinearInterpolator}
+     *                             null goes back to the one registered for the selector animation id
      */
     public void setInterpolatorSelector(Interpolator interpolatorSelector) {
         this.interpolatorSelector = interpolatorSelector;
@@ -558,7 +1311,7 @@ public class SegmentedButtonGroup extends LinearLayout {
      */
     public void setDividerColor(int dividerColor) {
         this.dividerColor = dividerColor;
-        RoundHelper.makeDividerRound(dividerContainer, dividerColor, dividerRadius, dividerSize, dividerBackgroundDrawable);
+        onPropertiesChanged(CHANGED_DIVIDERS);
     }
 
     /**
@@ -567,7 +1320,7 @@ public class SegmentedButtonGroup extends LinearLayout {
      */
     public void setDividerSize(int dividerSize) {
         this.dividerSize = dividerSize;
-        RoundHelper.makeDividerRound(dividerContainer, dividerColor, dividerRadius, dividerSize, dividerBackgroundDrawable);
+        onPropertiesChanged(CHANGED_DIVIDERS);
     }
 
     /**
@@ -576,7 +1329,7 @@ public class SegmentedButtonGroup extends LinearLayout {
      */
     public void setDividerRadius(int dividerRadius) {
         this.dividerRadius = dividerRadius;
-        RoundHelper.makeDividerRound(dividerContainer, dividerColor, dividerRadius, dividerSize, dividerBackgroundDrawable);
+        onPropertiesChanged(CHANGED_DIVIDERS);
     }
 
     /**
@@ -584,6 +1337,7 @@ public class SegmentedButtonGroup extends LinearLayout {
      */
     public void setDivider(boolean hasDivider) {
         this.hasDivider = hasDivider;
+        onPropertiesChanged(CHANGED_DRAW);
     }
 
     /**
@@ -592,6 +1346,7 @@ public class SegmentedButtonGroup extends LinearLayout {
      */
     public void setBorderSize(int borderSize) {
         this.borderSize = borderSize;
+        onPropertiesChanged(CHANGED_BUTTONS | CHANGED_LAYOUT);
     }
 
     /**
@@ -600,6 +1355,36 @@ public class SegmentedButtonGroup extends LinearLayout {
      */
     public void setBorderColor(int borderColor) {
         this.borderColor = borderColor;
+        onPropertiesChanged(CHANGED_DRAW);
+    }
+
+    /**
+     * @param animationSnapshots if true, normal and selected looks of buttons are rendered into bitmaps when
+     *                           selector starts moving, and animation frames only draw these bitmaps
+     */
+    public void setAnimationSnapshots(boolean animationSnapshots) {
+        this.animationSnapshots = animationSnapshots;
+        for (int i = 0; i < numberOfButtons; i++)
+            buttons.get(i).setSnapshotsEnabled(animationSnapshots);
+    }
+
+    public boolean isAnimationSnapshots() {
+        return animationSnapshots;
+    }
+
+    /**
+     * @param animationLayer decides whether buttons are drawn from hardware layers while selector is animated or dragged.
+     *                       {@link #AnimationLayerNone}, {@link #AnimationLayerAlways} or
+     *                       {@link #AnimationLayerAuto} which uses layers for groups of 4 or more buttons
+     *                       default: AnimationLayerNone
+     */
+    public void setAnimationLayer(int animationLayer) {
+        this.animationLayer = animationLayer;
+        updateAnimationState();
+    }
+
+    public int getAnimationLayer() {
+        return animationLayer;
     }
 
     public int getDividerSize() {
@@ -658,12 +1443,205 @@ public class SegmentedButtonGroup extends LinearLayout {
         return ripple;
     }
 
+    /**
+     * @param bakeInterpolator if true, selector interpolator is sampled into a lookup table that is shared by
+     *                         every group using the same interpolator, and frames read the table
+     *                         instead of evaluating the curve. See {@link LookupTableInterpolator}
+     */
+    public void setBakeInterpolator(boolean bakeInterpolator) {
+        this.bakeInterpolator = bakeInterpolator;
+    }
+
+    public boolean isBakeInterpolator() {
+        return bakeInterpolator;
+    }
+
     public Interpolator getInterpolatorSelector() {
-        return interpolatorSelector;
+        return resolveInterpolator();
+    }
+
+    private static final int CHANGED_BUTTONS = 1;
+    private static final int CHANGED_RIPPLES = 1 << 1;
+    private static final int CHANGED_DIVIDERS = 1 << 2;
+    private static final int CHANGED_LAYOUT = 1 << 3;
+    private static final int CHANGED_DRAW = 1 << 4;
+
+    private int editDepth, pendingChanges;
+
+    /**
+     * Starts a transaction. Changes made through the returned editor are collected and, when
+     * {@link Editor#apply()} is called, applied to buttons, ripples and dividers at once, followed by a single
+     * requestLayout/invalidate. An editor that is never applied changes nothing.
+     * <pre>
+     * group.edit()
+     *         .setSelectorColor(color)
+     *         .setRadius(radius)
+     *         .setDividerColor(dividerColor)
+     *         .apply();
+     * </pre>
+     */
+    public Editor edit() {
+        return new Editor();
+    }
+
+    public final class Editor {
+        private Integer selectorColor, backgroundColor, rippleColor, radius, borderSize, borderColor, dividerColor,
+                dividerSize, dividerRadius, dividerPadding;
+        private Boolean ripple, hasRippleColor, hasDivider;
+
+        private Editor() {
+        }
+
+        public Editor setSelectorColor(int selectorColor) {
+            this.selectorColor = selectorColor;
+            return this;
+        }
+
+        public Editor setBackgroundColor(int backgroundColor) {
+            this.backgroundColor = backgroundColor;
+            return this;
+        }
+
+        public Editor setRipple(boolean ripple) {
+            this.ripple = ripple;
+            return this;
+        }
+
+        public Editor setRippleColor(int rippleColor) {
+            this.rippleColor = rippleColor;
+            return this;
+        }
+
+        public Editor setRippleColor(boolean hasRippleColor) {
+            this.hasRippleColor = hasRippleColor;
+            return this;
+        }
+
+        public Editor setRadius(int radius) {
+            this.radius = radius;
+            return this;
+        }
+
+        public Editor setBorderSize(int borderSize) {
+            this.borderSize = borderSize;
+            return this;
+        }
+
+        public Editor setBorderColor(int borderColor) {
+            this.borderColor = borderColor;
+            return this;
+        }
+
+        public Editor setDivider(boolean hasDivider) {
+            this.hasDivider = hasDivider;
+            return this;
+        }
+
+        public Editor setDividerColor(int dividerColor) {
+            this.dividerColor = dividerColor;
+            return this;
+        }
+
+        public Editor setDividerSize(int dividerSize) {
+            this.dividerSize = dividerSize;
+            return this;
+        }
+
+        public Editor setDividerRadius(int dividerRadius) {
+            this.dividerRadius = dividerRadius;
+            return this;
+        }
+
+        public Editor setDividerPadding(int dividerPadding) {
+            this.dividerPadding = dividerPadding;
+            return this;
+        }
+
+        /**
+         * Applies the collected changes, an editor can be applied more than once
+         */
+        public void apply() {
+            editDepth++;
+            try {
+                if (null != selectorColor)
+                    SegmentedButtonGroup.this.setSelectorColor(selectorColor);
+                if (null != backgroundColor)
+                    SegmentedButtonGroup.this.setBackgroundColor(backgroundColor);
+                if (null != ripple)
+                    SegmentedButtonGroup.this.setRipple(ripple);
+                if (null != rippleColor)
+                    SegmentedButtonGroup.this.setRippleColor(rippleColor);
+                if (null != hasRippleColor)
+                    SegmentedButtonGroup.this.setRippleColor(hasRippleColor);
+                if (null != radius)
+                    SegmentedButtonGroup.this.setRadius(radius);
+                if (null != borderSize)
+                    SegmentedButtonGroup.this.setBorderSize(borderSize);
+                if (null != borderColor)
+                    SegmentedButtonGroup.this.setBorderColor(borderColor);
+                if (null != hasDivider)
+                    SegmentedButtonGroup.this.setDivider(hasDivider);
+                if (null != dividerColor)
+                    SegmentedButtonGroup.this.setDividerColor(dividerColor);
+                if (null != dividerSize)
+                    SegmentedButtonGroup.this.setDividerSize(dividerSize);
+                if (null != dividerRadius)
+                    SegmentedButtonGroup.this.setDividerRadius(dividerRadius);
+                if (null != dividerPadding)
+                    SegmentedButtonGroup.this.setDividerPadding(dividerPadding);
+            } finally {
+                if (--editDepth == 0)
+                    applyChanges();
+            }
+        }
+    }
+
+    private void onPropertiesChanged(int changes) {
+        pendingChanges |= changes;
+        if (editDepth == 0)
+            applyChanges();
+    }
+
+    private void applyChanges() {
+        int changes = pendingChanges;
+        pendingChanges = 0;
+        if (changes == 0)
+            return;
+
+        if ((changes & CHANGED_BUTTONS) != 0) {
+            for (SegmentedButton button : buttons) {
+                button.setSelectorColor(selectorColor);
+                button.setSelectorRadius(radius);
+                button.setBorderSize(borderSize);
+            }
+        }
+
+        if ((changes & CHANGED_RIPPLES) != 0) {
+            for (BackgroundView rippleView : ripples) {
+                rippleView.clearSavedBackground();
+                BackgroundHelper.setBackground(rippleView, null);
+                setRipple(rippleView, enabled && clickable);
+            }
+            if (null != groupRipple) {
+                groupRipple.setCallback(null);
+                groupRipple = null;
+            }
+            colorRipple = null;
+        }
+
+        if ((changes & CHANGED_DIVIDERS) != 0)
+            dividerInvalid = true;
+
+        if ((changes & CHANGED_LAYOUT) != 0)
+            requestLayout();
+
+        if ((changes & (CHANGED_BUTTONS | CHANGED_RIPPLES)) != 0 && Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP)
+            invalidateOutline();
+        invalidate();
     }
 
     private void setRippleState(boolean state) {
-        for (View v : ripples) {
+        for (BackgroundView v : ripples) {
             setRipple(v, state);
         }
     }
@@ -741,25 +1719,30 @@ public class SegmentedButtonGroup extends LinearLayout {
 
         toggledPosition = position;
 
-        ValueAnimator animator = ValueAnimator.ofFloat(toggledPositionOffset, position);
-        animator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
-            @Override
-            public void onAnimationUpdate(ValueAnimator animation) {
-                float animatedValue = toggledPositionOffset = (float) animation.getAnimatedValue();
+        // a selector already moving on the spring keeps its momentum towards the new target
+        if (null != selectorSpring && selectorSpring.isRunning() && duration > 1)
+            selectorSpring.retarget(position);
+        else
+            startSelectorAnimation(position, duration);
 
-                int position = (int) animatedValue;
-                float positionOffset = animatedValue - position;
+        notifyToggled(position, isToggledByTouch);
+    }
 
-                animateViews(position, positionOffset);
+    /**
+     * Seconds of travel at release velocity used to predict where a flung selector comes to rest
+     */
+    private static final float FLING_PROJECTION = 0.12f;
 
-                invalidate();
-            }
-        });
-        animator.setInterpolator(interpolatorSelector);
-        animator.setDuration(duration);
-        animator.start();
+    private void fling(float offset, float velocity) {
+        int position = Math.round(offset + velocity * FLING_PROJECTION);
+        position = Math.max(0, Math.min(numberOfButtons - 1, position));
 
+        toggledPosition = position;
+        startSelectorSpring(offset, velocity, position);
+        notifyToggled(position, true);
+    }
 
+    private void notifyToggled(int position, boolean isToggledByTouch) {
         if (null != onClickedButtonListener && isToggledByTouch)
             onClickedButtonListener.onClickedButton(position);
 
@@ -769,51 +1752,280 @@ public class SegmentedButtonGroup extends LinearLayout {
         this.position = position;
     }
 
-    private int lastPosition = 0;
-    private float lastPositionOffset = 0;
+    /**
+     * One animator per group animates the selector from animationFrom to animationTo. A toggle arriving while
+     * it runs retargets it from the current offset instead of starting a second animator.
+     */
+    private ValueAnimator selectorAnimator;
+    private float animationFrom, animationTo;
+    private boolean selectorAnimating, retargeting;
 
-    private void animateViews(int position, float positionOffset) {
-        float realPosition = position + positionOffset;
-        float lastRealPosition = lastPosition + lastPositionOffset;
+    private final ValueAnimator.AnimatorUpdateListener selectorUpdateListener = new ValueAnimator.AnimatorUpdateListener() {
+        @Override
+        public void onAnimationUpdate(ValueAnimator animation) {
+            // animator runs from 0 to 1, its fraction is read without boxing where the platform allows it
+            float fraction = Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB_MR1
+                    ? animation.getAnimatedFraction() : (Float) animation.getAnimatedValue();
+            float animatedValue = toggledPositionOffset = animationFrom + (animationTo - animationFrom) * fraction;
 
+            int position = (int) animatedValue;
+            float positionOffset = animatedValue - position;
 
-        if (realPosition == lastRealPosition) {
-            return;
+            animateViews(position, positionOffset);
         }
+    };
 
-        int nextPosition = position + 1;
-        if (positionOffset == 0.0f) {
-            if (lastRealPosition <= realPosition) {
-                nextPosition = position - 1;
-            }
+    private final AnimatorListenerAdapter selectorAnimatorListener = new AnimatorListenerAdapter() {
+        @Override
+        public void onAnimationEnd(Animator animation) {
+            if (retargeting)
+                return;
+            selectorAnimating = false;
+            updateAnimationState();
         }
+    };
 
-        if (lastPosition > position) {
-            if (lastPositionOffset > 0f) {
-                toNextPosition(nextPosition + 1, 1);
-            }
+    private SelectorSpring selectorSpring;
+    private float springStiffness, springDampingRatio;
+
+    private final SelectorSpring.Listener selectorSpringListener = new SelectorSpring.Listener() {
+        @Override
+        public void onSpringUpdate(float position) {
+            toggledPositionOffset = position;
+            animateViews((int) position, position - (int) position);
+        }
+
+        @Override
+        public void onSpringAtRest() {
+            selectorAnimating = false;
+            updateAnimationState();
+        }
+    };
+
+    private void startSelectorSpring(float from, float velocity, float to) {
+        if (null == selectorSpring) {
+            selectorSpring = new SelectorSpring(selectorSpringListener);
+            selectorSpring.setStiffness(springStiffness);
+            selectorSpring.setDampingRatio(springDampingRatio);
+        }
+        if (null != selectorAnimator && selectorAnimator.isStarted()) {
+            retargeting = true;
+            selectorAnimator.cancel();
+            retargeting = false;
         }
 
-        if (lastPosition < position) {
-            if (lastPositionOffset < 1.0f) {
-                toPosition(position - 1, 0);
+        toggledPositionOffset = from;
+        prepareSnapshots();
+        selectorAnimating = true;
+        updateAnimationState();
+        selectorSpring.start(from, velocity, to);
+    }
+
+    private void startSelectorAnimation(float to, int duration) {
+        if (null != selectorSpring)
+            selectorSpring.cancel();
+
+        if (null == selectorAnimator) {
+            selectorAnimator = ValueAnimator.ofFloat(0f, 1f);
+            selectorAnimator.addUpdateListener(selectorUpdateListener);
+            selectorAnimator.addListener(selectorAnimatorListener);
+        } else if (selectorAnimator.isStarted()) {
+            // layers and snapshots stay as they are, only the animation is restarted
+            retargeting = true;
+            selectorAnimator.cancel();
+            retargeting = false;
+        }
+
+        animationFrom = toggledPositionOffset;
+        animationTo = to;
+
+        Interpolator interpolator = resolveInterpolator();
+        selectorAnimator.setInterpolator(bakeInterpolator && null != interpolator
+                ? LookupTableInterpolator.obtain(interpolator) : interpolator);
+        selectorAnimator.setDuration(duration);
+        prepareSnapshots();
+        selectorAnimating = true;
+        updateAnimationState();
+        selectorAnimator.start();
+    }
+
+    private void cancelSelectorAnimation() {
+        if (null != selectorAnimator && selectorAnimator.isStarted())
+            selectorAnimator.cancel();
+        if (null != selectorSpring && selectorSpring.isRunning()) {
+            selectorSpring.cancel();
+            selectorAnimating = false;
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        float target = -1;
+        if (null != selectorAnimator && selectorAnimator.isStarted())
+            target = animationTo;
+        else if (null != selectorSpring && selectorSpring.isRunning())
+            target = selectorSpring.getTarget();
+
+        if (target >= 0) {
+            cancelSelectorAnimation();
+            updateAnimationState();
+            // selector is shown at its destination when the group is attached again
+            toggledPositionOffset = target;
+            animateViews((int) target, target - (int) target);
+        }
+        cancelDrag();
+        super.onDetachedFromWindow();
+    }
+
+    /**
+     * @param springStiffness sets how fast a dragged selector settles after it is released
+     *                        default: 400
+     */
+    public void setSpringStiffness(float springStiffness) {
+        this.springStiffness = springStiffness;
+        if (null != selectorSpring)
+            selectorSpring.setStiffness(springStiffness);
+    }
+
+    public float getSpringStiffness() {
+        return springStiffness;
+    }
+
+    /**
+     * @param springDampingRatio sets how much a released selector bounces, 1 for no bounce
+     *                           default: 0.8
+     */
+    public void setSpringDampingRatio(float springDampingRatio) {
+        this.springDampingRatio = springDampingRatio;
+        if (null != selectorSpring)
+            selectorSpring.setDampingRatio(springDampingRatio);
+    }
+
+    public float getSpringDampingRatio() {
+        return springDampingRatio;
+    }
+
+    private boolean dragging = false;
+
+    /**
+     * Buttons that were promoted to hardware layers by the group and go back to no layer afterwards
+     */
+    private ArrayList<View> layeredViews = new ArrayList<>();
+
+    /**
+     * Called whenever the selector starts or stops moving. Hardware layers and snapshots of the buttons only
+     * live while it moves, snapshots are released right after, so idle buttons do not keep two bitmaps each.
+     */
+    private void updateAnimationState() {
+        updateAnimationLayers();
+        if (!selectorAnimating && !dragging)
+            releaseSnapshots();
+    }
+
+    /**
+     * Buttons are drawn from hardware layers while the selector moves. The group itself is not layered,
+     * it draws the selector and would have to re-render its layer on every frame anyway.
+     */
+    private void updateAnimationLayers() {
+        boolean animating = selectorAnimating || dragging;
+        boolean useLayers = animationLayer == AnimationLayerAlways
+                || (animationLayer == AnimationLayerAuto && numberOfButtons >= AUTO_LAYER_MIN_BUTTONS);
+
+        if (animating && useLayers) {
+            if (!layeredViews.isEmpty())
+                return;
+            for (int i = 0; i < numberOfButtons; i++) {
+                SegmentedButton button = buttons.get(i);
+                if (button.getLayerType() == LAYER_TYPE_NONE) {
+                    button.setLayerType(LAYER_TYPE_HARDWARE, null);
+                    layeredViews.add(button);
+                }
             }
+        } else if (!layeredViews.isEmpty()) {
+            for (int i = 0; i < layeredViews.size(); i++)
+                layeredViews.get(i).setLayerType(LAYER_TYPE_NONE, null);
+            layeredViews.clear();
+        }
+    }
+
+    private void prepareSnapshots() {
+        if (!animationSnapshots)
+            return;
+
+        for (int i = 0; i < numberOfButtons; i++)
+            buttons.get(i).prepareSnapshots();
+    }
+
+    private void releaseSnapshots() {
+        for (int i = 0; i < numberOfButtons; i++)
+            buttons.get(i).releaseSnapshots();
+    }
+
+    /**
+     * Selector's current position, integer part is the segment and fraction is the way to the next one
+     */
+    private float selectorPosition = 0;
+
+    private void animateViews(int position, float positionOffset) {
+        float realPosition = position + positionOffset;
+
+        if (realPosition == selectorPosition) {
+            return;
+        }
+
+        selectorPosition = realPosition;
+        invalidateSelector();
+    }
+
+    private RectF dirtyRect = new RectF();
+    private int invalidatedPixels, invalidatedViews, lastFrameInvalidatedPixels, lastFrameInvalidatedViews;
+
+    /**
+     * Invalidates only the area swept by the selector since it was last drawn, which also covers
+     * the selected content drawn under it. Buttons are not invalidated, their content does not change.
+     */
+    private void invalidateSelector() {
+        if (selectorRect.isEmpty() || !getSelectorBounds(selectorPosition, dirtyRect)) {
+            invalidate();
+            invalidatedPixels += getWidth() * getHeight();
+            invalidatedViews++;
+            return;
+        }
+
+        // dividers fade within half a selector width of it, so those around both rects are redrawn too
+        float fadeDistance = hasDivider && dividerFadeNearSelector
+                ? Math.max(dirtyRect.width(), selectorRect.width()) / 2f + dividerSize : 0;
+
+        dirtyRect.union(selectorRect);
+
+        if (fadeDistance > 0) {
+            dirtyRect.inset(-fadeDistance, 0);
+            dirtyRect.top = Math.min(dirtyRect.top, getPaddingTop() + dividerPadding);
+            dirtyRect.bottom = Math.max(dirtyRect.bottom, getHeight() - getPaddingBottom() - dividerPadding);
         }
 
-        toNextPosition(nextPosition, 1.0f - positionOffset);
-        toPosition(position, 1.0f - positionOffset);
+        // one extra pixel for anti-aliased edges
+        int left = (int) Math.floor(dirtyRect.left) - 1;
+        int top = (int) Math.floor(dirtyRect.top) - 1;
+        int right = (int) Math.ceil(dirtyRect.right) + 1;
+        int bottom = (int) Math.ceil(dirtyRect.bottom) + 1;
 
-        lastPosition = position;
-        lastPositionOffset = positionOffset;
+        invalidate(left, top, right, bottom);
+        invalidatedPixels += (right - left) * (bottom - top);
+        invalidatedViews++;
     }
 
-    private void toPosition(int position, float clip) {
-        if (position >= 0 && position < numberOfButtons)
-            buttons.get(position).clipToRight(clip);
+    /**
+     * @return number of pixels the selector invalidated for the last drawn frame
+     */
+    public int getLastFrameInvalidatedPixels() {
+        return lastFrameInvalidatedPixels;
     }
 
-    private void toNextPosition(int position, float clip) {
-        if (position >= 0 && position < numberOfButtons)
-            buttons.get(position).clipToLeft(clip);
+    /**
+     * @return number of views the selector invalidated for the last drawn frame
+     */
+    public int getLastFrameInvalidatedViews() {
+        return lastFrameInvalidatedViews;
     }
 }
@@ -0,0 +1,402 @@
+/*
+ * Copyright (C) 2016 ceryle
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package co.ceryle.segmentedbutton;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.content.res.TypedArray;
+import android.graphics.Color;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffColorFilter;
+import android.graphics.Typeface;
+import android.text.TextPaint;
+import android.util.AttributeSet;
+import android.util.SparseArray;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.WeakHashMap;
+
+/**
+ * Immutable appearance of a {@link SegmentedButton}: text size, colors, typeface, drawable tints, size and
+ * gravity. Buttons keep a reference to their style, so hundreds of buttons with the same look share one
+ * parsed style, one template text paint and one pair of color filters.
+ * <p>
+ * Styles are parsed once per style resource and theme with {@link #obtain(Context, int)}, or built in code
+ * with {@link Builder}. Buttons inflated from XML use the shared style of their style="" resource unless
+ * they set appearance attributes inline. A button whose look is changed through its setters gets its own copy.
+ */
+public final class SegmentedButtonStyle {
+
+    /**
+     * Attributes that belong to the style, the others (text, drawable, layout width and weight)
+     * describe the button's content
+     */
+    private static final HashSet<String> STYLE_ATTRIBUTES = new HashSet<>(Arrays.asList(
+            "sb_rippleColor", "sb_drawablePadding", "sb_drawableTint", "sb_drawableTint_onSelection",
+            "sb_drawableWidth", "sb_drawableHeight", "sb_drawableGravity", "sb_textColor", "sb_textColor_onSelection",
+            "sb_textSize", "sb_textTypeface", "sb_textTypefacePath", "sb_textTypefaceAsync"));
+
+    private static final WeakHashMap<Resources.Theme, SparseArray<SegmentedButtonStyle>> styles = new WeakHashMap<>();
+
+    final float textSize;
+    final int textColor, textColorOnSelection, rippleColor, drawableTint, drawableTintOnSelection,
+            drawableWidth, drawableHeight, drawablePadding;
+    final boolean hasTextColorOnSelection, hasRipple, hasDrawableTint, hasDrawableTintOnSelection,
+            hasDrawableWidth, hasDrawableHeight, textTypefaceAsync;
+    final Typeface textTypeface;
+    final String textTypefacePath;
+    final SegmentedButton.DrawableGravity drawableGravity;
+
+    /**
+     * Application context, used to read typefaces from assets
+     */
+    private final Context context;
+
+    /**
+     * Shared by every button of the style, buttons copy it before changing it
+     */
+    final TextPaint textPaint;
+    final PorterDuffColorFilter normalColorFilter, selectedColorFilter;
+
+    private SegmentedButtonStyle(Builder builder) {
+        textSize = builder.textSize;
+        textColor = builder.textColor;
+        textColorOnSelection = builder.textColorOnSelection;
+        hasTextColorOnSelection = builder.hasTextColorOnSelection;
+        rippleColor = builder.rippleColor;
+        hasRipple = builder.hasRipple;
+        drawableTint = builder.drawableTint;
+        hasDrawableTint = builder.hasDrawableTint;
+        drawableTintOnSelection = builder.drawableTintOnSelection;
+        hasDrawableTintOnSelection = builder.hasDrawableTintOnSelection;
+        drawableWidth = builder.drawableWidth;
+        hasDrawableWidth = builder.hasDrawableWidth;
+        drawableHeight = builder.drawableHeight;
+        hasDrawableHeight = builder.hasDrawableHeight;
+        drawablePadding = builder.drawablePadding;
+        drawableGravity = builder.drawableGravity;
+        textTypeface = builder.textTypeface;
+        textTypefacePath = builder.textTypefacePath;
+        textTypefaceAsync = builder.textTypefaceAsync;
+        context = builder.context;
+
+        // a typeface from assets that is loaded synchronously is part of the shared paint
+        Typeface typeface = textTypeface;
+        if (null != textTypefacePath && !textTypefaceAsync && null != context)
+            typeface = TypefaceCache.get(context.getAssets(), textTypefacePath);
+        textPaint = SegmentedButton.createTextPaint(textSize, null != typeface ? typeface : textTypeface);
+
+        normalColorFilter = hasDrawableTint ? new PorterDuffColorFilter(drawableTint, PorterDuff.Mode.SRC_IN) : null;
+        selectedColorFilter = hasDrawableTintOnSelection
+                ? new PorterDuffColorFilter(drawableTintOnSelection, PorterDuff.Mode.SRC_IN) : null;
+    }
+
+    /**
+     * @param styleRes is a style resource with sb_ attributes, 0 for the default style
+     * @return style shared by every caller asking for the same resource with the same theme
+     */
+    public static SegmentedButtonStyle obtain(Context context, int styleRes) {
+        Resources.Theme theme = context.getTheme();
+        synchronized (styles) {
+            SparseArray<SegmentedButtonStyle> themeStyles = styles.get(theme);
+            if (null == themeStyles) {
+                themeStyles = new SparseArray<>();
+                styles.put(theme, themeStyles);
+            }
+            SegmentedButtonStyle style = themeStyles.get(styleRes);
+            if (null == style) {
+                TypedArray ta = context.obtainStyledAttributes(styleRes, R.styleable.SegmentedButton);
+                style = parse(context, ta);
+                ta.recycle();
+                themeStyles.put(styleRes, style);
+            }
+            return style;
+        }
+    }
+
+    /**
+     * @return shared style of the element's style resource, or a style parsed from the element if it sets
+     * appearance attributes inline
+     */
+    static SegmentedButtonStyle obtain(Context context, AttributeSet attrs) {
+        if (null == attrs)
+            return obtain(context, 0);
+        if (!hasInlineStyleAttributes(attrs))
+            return obtain(context, attrs.getStyleAttribute());
+
+        TypedArray ta = context.obtainStyledAttributes(attrs, R.styleable.SegmentedButton);
+        SegmentedButtonStyle style = parse(context, ta);
+        ta.recycle();
+        return style;
+    }
+
+    private static boolean hasInlineStyleAttributes(AttributeSet attrs) {
+        // a style="?attr/..." is resolved against the theme by obtainStyledAttributes only
+        String styleValue = attrs.getAttributeValue(null, "style");
+        if (null != styleValue && styleValue.startsWith("?"))
+            return true;
+
+        for (int i = 0; i < attrs.getAttributeCount(); i++) {
+            if (STYLE_ATTRIBUTES.contains(attrs.getAttributeName(i)))
+                return true;
+        }
+        return false;
+    }
+
+    private static SegmentedButtonStyle parse(Context context, TypedArray ta) {
+        Builder builder = new Builder(context);
+
+        if (ta.hasValue(R.styleable.SegmentedButton_sb_drawableTint_onSelection))
+            builder.setDrawableTintOnSelection(ta.getColor(R.styleable.SegmentedButton_sb_drawableTint_onSelection, Color.WHITE));
+        if (ta.hasValue(R.styleable.SegmentedButton_sb_textColor_onSelection))
+            builder.setTextColorOnSelection(ta.getColor(R.styleable.SegmentedButton_sb_textColor_onSelection, Color.WHITE));
+        if (ta.hasValue(R.styleable.SegmentedButton_sb_rippleColor))
+            builder.setRippleColor(ta.getColor(R.styleable.SegmentedButton_sb_rippleColor, 0));
+        if (ta.hasValue(R.styleable.SegmentedButton_sb_drawableTint))
+            builder.setDrawableTint(ta.getColor(R.styleable.SegmentedButton_sb_drawableTint, -1));
+        if (ta.hasValue(R.styleable.SegmentedButton_sb_drawableWidth))
+            builder.setDrawableWidth(ta.getDimensionPixelSize(R.styleable.SegmentedButton_sb_drawableWidth, -1));
+        if (ta.hasValue(R.styleable.SegmentedButton_sb_drawableHeight))
+            builder.setDrawableHeight(ta.getDimensionPixelSize(R.styleable.SegmentedButton_sb_drawableHeight, -1));
+
+        builder.setTextSize(ta.getDimension(R.styleable.SegmentedButton_sb_textSize, builder.textSize));
+        builder.setTextColor(ta.getColor(R.styleable.SegmentedButton_sb_textColor, Color.GRAY));
+        builder.setDrawablePadding(ta.getDimensionPixelSize(R.styleable.SegmentedButton_sb_drawablePadding, 0));
+        builder.setDrawableGravity(SegmentedButton.DrawableGravity.getById(
+                ta.getInteger(R.styleable.SegmentedButton_sb_drawableGravity, 0)));
+        builder.setTypefacePath(ta.getString(R.styleable.SegmentedButton_sb_textTypefacePath),
+                ta.getBoolean(R.styleable.SegmentedButton_sb_textTypefaceAsync, false));
+
+        switch (ta.getInt(R.styleable.SegmentedButton_sb_textTypeface, 1)) {
+            case 0:
+                builder.setTypeface(Typeface.MONOSPACE);
+                break;
+            case 1:
+                builder.setTypeface(Typeface.DEFAULT);
+                break;
+            case 2:
+                builder.setTypeface(Typeface.SANS_SERIF);
+                break;
+            case 3:
+                builder.setTypeface(Typeface.SERIF);
+                break;
+        }
+        return builder.build();
+    }
+
+    private TextPaint loadedTextPaint;
+
+    /**
+     * @return shared paint of the style with a typeface loaded after the style was built, buttons of the
+     * style waiting for the same typeface get the same paint
+     */
+    TextPaint getTextPaint(Typeface typeface) {
+        if (typeface == textPaint.getTypeface())
+            return textPaint;
+
+        TextPaint paint = loadedTextPaint;
+        if (null == paint || paint.getTypeface() != typeface) {
+            paint = new TextPaint(textPaint);
+            paint.setTypeface(typeface);
+            loadedTextPaint = paint;
+        }
+        return paint;
+    }
+
+    /**
+     * @return a builder with the values of this style, a button changing its look builds its own copy with it
+     */
+    Builder buildUpon() {
+        return new Builder(this);
+    }
+
+    public float getTextSize() {
+        return textSize;
+    }
+
+    public int getTextColor() {
+        return textColor;
+    }
+
+    public int getTextColorOnSelection() {
+        return textColorOnSelection;
+    }
+
+    public int getRippleColor() {
+        return rippleColor;
+    }
+
+    public int getDrawableTint() {
+        return drawableTint;
+    }
+
+    public int getDrawableTintOnSelection() {
+        return drawableTintOnSelection;
+    }
+
+    public int getDrawablePadding() {
+        return drawablePadding;
+    }
+
+    public Typeface getTypeface() {
+        return textTypeface;
+    }
+
+    public SegmentedButton.DrawableGravity getDrawableGravity() {
+        return drawableGravity;
+    }
+
+    public static final class Builder {
+        private Context context;
+        private float textSize;
+        private int textColor = Color.GRAY, textColorOnSelection = Color.WHITE, rippleColor, drawableTint = -1,
+                drawableTintOnSelection = Color.WHITE, drawableWidth = -1, drawableHeight = -1, drawablePadding;
+        private boolean hasTextColorOnSelection, hasRipple, hasDrawableTint, hasDrawableTintOnSelection,
+                hasDrawableWidth, hasDrawableHeight, textTypefaceAsync;
+        private Typeface textTypeface = Typeface.DEFAULT;
+        private String textTypefacePath;
+        private SegmentedButton.DrawableGravity drawableGravity = SegmentedButton.DrawableGravity.LEFT;
+
+        /**
+         * @param context is used for default text size and typefaces in assets
+         */
+        public Builder(Context context) {
+            this.context = context.getApplicationContext();
+            textSize = ConversionHelper.spToPx(context, 14);
+        }
+
+        Builder(SegmentedButtonStyle style) {
+            textSize = style.textSize;
+            textColor = style.textColor;
+            textColorOnSelection = style.textColorOnSelection;
+            hasTextColorOnSelection = style.hasTextColorOnSelection;
+            rippleColor = style.rippleColor;
+            hasRipple = style.hasRipple;
+            drawableTint = style.drawableTint;
+            hasDrawableTint = style.hasDrawableTint;
+            drawableTintOnSelection = style.drawableTintOnSelection;
+            hasDrawableTintOnSelection = style.hasDrawableTintOnSelection;
+            drawableWidth = style.drawableWidth;
+            hasDrawableWidth = style.hasDrawableWidth;
+            drawableHeight = style.drawableHeight;
+            hasDrawableHeight = style.hasDrawableHeight;
+            drawablePadding = style.drawablePadding;
+            drawableGravity = style.drawableGravity;
+            textTypeface = style.textTypeface;
+            textTypefacePath = style.textTypefacePath;
+            textTypefaceAsync = style.textTypefaceAsync;
+            context = style.context;
+        }
+
+        /**
+         * @param textSize is in pixels
+         */
+        public Builder setTextSize(float textSize) {
+            this.textSize = textSize;
+            return this;
+        }
+
+        public Builder setTextColor(int textColor) {
+            this.textColor = textColor;
+            return this;
+        }
+
+        /**
+         * @param textColorOnSelection is used while selector is on the button, null to keep text color
+         */
+        public Builder setTextColorOnSelection(Integer textColorOnSelection) {
+            hasTextColorOnSelection = null != textColorOnSelection;
+            this.textColorOnSelection = hasTextColorOnSelection ? textColorOnSelection : Color.WHITE;
+            return this;
+        }
+
+        /**
+         * @param rippleColor is used by the group for the button's ripple, null for no ripple of its own
+         */
+        public Builder setRippleColor(Integer rippleColor) {
+            hasRipple = null != rippleColor;
+            this.rippleColor = hasRipple ? rippleColor : 0;
+            return this;
+        }
+
+        /**
+         * @param drawableTint null keeps drawable's colors
+         */
+        public Builder setDrawableTint(Integer drawableTint) {
+            hasDrawableTint = null != drawableTint;
+            this.drawableTint = hasDrawableTint ? drawableTint : -1;
+            return this;
+        }
+
+        /**
+         * @param drawableTintOnSelection null keeps drawable's colors while selector is on the button
+         */
+        public Builder setDrawableTintOnSelection(Integer drawableTintOnSelection) {
+            hasDrawableTintOnSelection = null != drawableTintOnSelection;
+            this.drawableTintOnSelection = hasDrawableTintOnSelection ? drawableTintOnSelection : Color.WHITE;
+            return this;
+        }
+
+        /**
+         * @param drawableWidth in pixels, -1 for drawable's intrinsic width
+         */
+        public Builder setDrawableWidth(int drawableWidth) {
+            hasDrawableWidth = drawableWidth >= 0;
+            this.drawableWidth = drawableWidth;
+            return this;
+        }
+
+        /**
+         * @param drawableHeight in pixels, -1 for drawable's intrinsic height
+         */
+        public Builder setDrawableHeight(int drawableHeight) {
+            hasDrawableHeight = drawableHeight >= 0;
+            this.drawableHeight = drawableHeight;
+            return this;
+        }
+
+        public Builder setDrawablePadding(int drawablePadding) {
+            this.drawablePadding = drawablePadding;
+            return this;
+        }
+
+        public Builder setDrawableGravity(SegmentedButton.DrawableGravity drawableGravity) {
+            this.drawableGravity = null != drawableGravity ? drawableGravity : SegmentedButton.DrawableGravity.LEFT;
+            return this;
+        }
+
+        public Builder setTypeface(Typeface typeface) {
+            this.textTypeface = typeface;
+            return this;
+        }
+
+        /**
+         * @param path  is .ttf file's path in assets folder, null for none
+         * @param async if true, buttons load the typeface on a background thread and use the typeface set with
+         *              {@link #setTypeface(Typeface)} until then
+         */
+        public Builder setTypefacePath(String path, boolean async) {
+            this.textTypefacePath = null == path || path.equals("") ? null : path;
+            this.textTypefaceAsync = async;
+            return this;
+        }
+
+        public SegmentedButtonStyle build() {
+            return new SegmentedButtonStyle(this);
+        }
+    }
+}
@@ -0,0 +1,381 @@
+/*
+ * Copyright (C) 2016 ceryle
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package co.ceryle.segmentedbutton;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.content.res.TypedArray;
+import android.graphics.Color;
+import android.graphics.drawable.Drawable;
+import android.util.AttributeSet;
+import android.util.SparseArray;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.WeakHashMap;
+
+/**
+ * Immutable appearance of a {@link SegmentedButtonGroup}: selector, dividers, border, ripple and animation.
+ * Groups inflated with the same style="" resource share one parsed style, and every group gets its own drawables
+ * from the constant states of the style's drawables without decoding the resources again.
+ * <p>
+ * Selected position, sbg_enabled and android:clickable describe a single group, they are not part of the style.
+ */
+public final class SegmentedGroupStyle {
+
+    /**
+     * Attributes that belong to a single group rather than to its style
+     */
+    private static final HashSet<String> INSTANCE_ATTRIBUTES = new HashSet<>(Arrays.asList(
+            "sbg_position", "sbg_enabled", "clickable"));
+
+    private static final WeakHashMap<Resources.Theme, SparseArray<SegmentedGroupStyle>> styles = new WeakHashMap<>();
+
+    final int selectorColor, animateSelector, animateSelectorDuration, backgroundColor, dividerColor, radius,
+            dividerSize, rippleColor, dividerPadding, dividerRadius, borderSize, borderColor, animationLayer;
+    final boolean ripple, hasRippleColor, hasDivider, dividerFadeNearSelector, animationSnapshots, bakeInterpolator,
+            draggable, singleRipple;
+    final float springStiffness, springDampingRatio;
+    final Drawable backgroundDrawable, selectorBackgroundDrawable, dividerBackgroundDrawable;
+
+    private SegmentedGroupStyle(Builder builder) {
+        selectorColor = builder.selectorColor;
+        animateSelector = builder.animateSelector;
+        animateSelectorDuration = builder.animateSelectorDuration;
+        backgroundColor = builder.backgroundColor;
+        dividerColor = builder.dividerColor;
+        radius = builder.radius;
+        dividerSize = builder.dividerSize;
+        hasDivider = builder.hasDivider;
+        rippleColor = builder.rippleColor;
+        hasRippleColor = builder.hasRippleColor;
+        ripple = builder.ripple;
+        dividerPadding = builder.dividerPadding;
+        dividerRadius = builder.dividerRadius;
+        dividerFadeNearSelector = builder.dividerFadeNearSelector;
+        borderSize = builder.borderSize;
+        borderColor = builder.borderColor;
+        animationLayer = builder.animationLayer;
+        animationSnapshots = builder.animationSnapshots;
+        bakeInterpolator = builder.bakeInterpolator;
+        draggable = builder.draggable;
+        singleRipple = builder.singleRipple;
+        springStiffness = builder.springStiffness;
+        springDampingRatio = builder.springDampingRatio;
+        backgroundDrawable = builder.backgroundDrawable;
+        selectorBackgroundDrawable = builder.selectorBackgroundDrawable;
+        dividerBackgroundDrawable = builder.dividerBackgroundDrawable;
+    }
+
+    /**
+     * @param styleRes is a style resource with sbg_ attributes, 0 for the default style
+     * @return style shared by every caller asking for the same resource with the same theme
+     */
+    public static SegmentedGroupStyle obtain(Context context, int styleRes) {
+        Resources.Theme theme = context.getTheme();
+        synchronized (styles) {
+            SparseArray<SegmentedGroupStyle> themeStyles = styles.get(theme);
+            if (null == themeStyles) {
+                themeStyles = new SparseArray<>();
+                styles.put(theme, themeStyles);
+            }
+            SegmentedGroupStyle style = themeStyles.get(styleRes);
+            if (null == style) {
+                TypedArray ta = context.obtainStyledAttributes(styleRes, R.styleable.SegmentedButtonGroup);
+                style = parse(ta);
+                ta.recycle();
+                themeStyles.put(styleRes, style);
+            }
+            return style;
+        }
+    }
+
+    /**
+     * @return shared style of the element's style resource, or a style parsed from the element if it sets
+     * style attributes inline
+     */
+    static SegmentedGroupStyle obtain(Context context, AttributeSet attrs) {
+        if (null == attrs)
+            return obtain(context, 0);
+        if (!hasInlineStyleAttributes(attrs))
+            return obtain(context, attrs.getStyleAttribute());
+
+        TypedArray ta = context.obtainStyledAttributes(attrs, R.styleable.SegmentedButtonGroup);
+        SegmentedGroupStyle style = parse(ta);
+        ta.recycle();
+        return style;
+    }
+
+    private static boolean hasInlineStyleAttributes(AttributeSet attrs) {
+        // a style="?attr/..." is resolved against the theme by obtainStyledAttributes only
+        String styleValue = attrs.getAttributeValue(null, "style");
+        if (null != styleValue && styleValue.startsWith("?"))
+            return true;
+
+        for (int i = 0; i < attrs.getAttributeCount(); i++) {
+            String name = attrs.getAttributeName(i);
+            if (name.startsWith("sbg_") && !INSTANCE_ATTRIBUTES.contains(name))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the element or its style="" sets selected position, sbg_enabled or android:clickable
+     */
+    static boolean hasInstanceAttributes(AttributeSet attrs) {
+        if (null == attrs)
+            return false;
+        if (attrs.getStyleAttribute() != 0)
+            return true;
+
+        for (int i = 0; i < attrs.getAttributeCount(); i++) {
+            if (INSTANCE_ATTRIBUTES.contains(attrs.getAttributeName(i)))
+                return true;
+        }
+        return false;
+    }
+
+    private static SegmentedGroupStyle parse(TypedArray ta) {
+        Builder builder = new Builder();
+
+        builder.setDivider(ta.getDimensionPixelSize(R.styleable.SegmentedButtonGroup_sbg_dividerSize, 0),
+                ta.getColor(R.styleable.SegmentedButtonGroup_sbg_dividerColor, Color.WHITE),
+                ta.getDimensionPixelSize(R.styleable.SegmentedButtonGroup_sbg_dividerPadding, 0),
+                ta.getDimensionPixelSize(R.styleable.SegmentedButtonGroup_sbg_dividerRadius, 0));
+        builder.setDivider(ta.hasValue(R.styleable.SegmentedButtonGroup_sbg_dividerSize));
+        builder.setDividerFadeNearSelector(ta.getBoolean(R.styleable.SegmentedButtonGroup_sbg_dividerFadeNearSelector, false));
+
+        builder.setSelectorColor(ta.getColor(R.styleable.SegmentedButtonGroup_sbg_selectorColor, Color.GRAY));
+        builder.setAnimateSelector(ta.getInt(R.styleable.SegmentedButtonGroup_sbg_animateSelector, 0),
+                ta.getInt(R.styleable.SegmentedButtonGroup_sbg_animateSelectorDuration, 500));
+
+        builder.setRadius(ta.getDimensionPixelSize(R.styleable.SegmentedButtonGroup_sbg_radius, 0));
+        builder.setBackgroundColor(ta.getColor(R.styleable.SegmentedButtonGroup_sbg_backgroundColor, Color.TRANSPARENT));
+
+        builder.setRipple(ta.getBoolean(R.styleable.SegmentedButtonGroup_sbg_ripple, false));
+        if (ta.hasValue(R.styleable.SegmentedButtonGroup_sbg_rippleColor))
+            builder.setRippleColor(ta.getColor(R.styleable.SegmentedButtonGroup_sbg_rippleColor, Color.GRAY));
+        builder.setSingleRipple(ta.getBoolean(R.styleable.SegmentedButtonGroup_sbg_singleRipple, false));
+
+        builder.setBorder(ta.getDimensionPixelSize(R.styleable.SegmentedButtonGroup_sbg_borderSize, 0),
+                ta.getColor(R.styleable.SegmentedButtonGroup_sbg_borderColor, Color.BLACK));
+
+        builder.setBackgroundDrawable(ta.getDrawable(R.styleable.SegmentedButtonGroup_sbg_backgroundDrawable));
+        builder.setSelectorBackgroundDrawable(ta.getDrawable(R.styleable.SegmentedButtonGroup_sbg_selectorBackgroundDrawable));
+        builder.setDividerBackgroundDrawable(ta.getDrawable(R.styleable.SegmentedButtonGroup_sbg_dividerBackgroundDrawable));
+
+        builder.setDraggable(ta.getBoolean(R.styleable.SegmentedButtonGroup_sbg_draggable, false));
+        builder.setAnimationSnapshots(ta.getBoolean(R.styleable.SegmentedButtonGroup_sbg_animationSnapshots, false));
+        builder.setBakeInterpolator(ta.getBoolean(R.styleable.SegmentedButtonGroup_sbg_bakeInterpolator, false));
+        builder.setSpring(ta.getFloat(R.styleable.SegmentedButtonGroup_sbg_springStiffness, 400f),
+                ta.getFloat(R.styleable.SegmentedButtonGroup_sbg_springDampingRatio, 0.8f));
+        builder.setAnimationLayer(ta.getInt(R.styleable.SegmentedButtonGroup_sbg_animationLayer,
+                SegmentedButtonGroup.AnimationLayerNone));
+
+        return builder.build();
+    }
+
+    /**
+     * @return a new drawable for a single group, or the style's own drawable if it has no constant state
+     * to copy it from
+     */
+    static Drawable newDrawable(Drawable drawable, Resources resources) {
+        if (null == drawable)
+            return null;
+        Drawable.ConstantState state = drawable.getConstantState();
+        return null != state ? state.newDrawable(resources) : drawable;
+    }
+
+    public int getSelectorColor() {
+        return selectorColor;
+    }
+
+    public int getBackgroundColor() {
+        return backgroundColor;
+    }
+
+    public int getRadius() {
+        return radius;
+    }
+
+    public int getBorderSize() {
+        return borderSize;
+    }
+
+    public int getBorderColor() {
+        return borderColor;
+    }
+
+    public int getAnimateSelector() {
+        return animateSelector;
+    }
+
+    public int getAnimateSelectorDuration() {
+        return animateSelectorDuration;
+    }
+
+    public static final class Builder {
+        private int selectorColor = Color.GRAY, animateSelector, animateSelectorDuration = 500,
+                backgroundColor = Color.TRANSPARENT, dividerColor = Color.WHITE, radius, dividerSize,
+                rippleColor = Color.GRAY, dividerPadding, dividerRadius, borderSize, borderColor = Color.BLACK,
+                animationLayer = SegmentedButtonGroup.AnimationLayerNone;
+        private boolean ripple, hasRippleColor, hasDivider, dividerFadeNearSelector, animationSnapshots,
+                bakeInterpolator, draggable, singleRipple;
+        private float springStiffness = 400f, springDampingRatio = 0.8f;
+        private Drawable backgroundDrawable, selectorBackgroundDrawable, dividerBackgroundDrawable;
+
+        public Builder() {
+        }
+
+        public Builder setSelectorColor(int selectorColor) {
+            this.selectorColor = selectorColor;
+            return this;
+        }
+
+        /**
+         * @param animateSelector  is one of the interpolator ids, same as sbg_animateSelector
+         * @param duration is in milliseconds
+         */
+        public Builder setAnimateSelector(int animateSelector, int duration) {
+            this.animateSelector = animateSelector;
+            this.animateSelectorDuration = duration;
+            return this;
+        }
+
+        public Builder setBackgroundColor(int backgroundColor) {
+            this.backgroundColor = backgroundColor;
+            return this;
+        }
+
+        public Builder setRadius(int radius) {
+            this.radius = radius;
+            return this;
+        }
+
+        /**
+         * Shows dividers with the given look
+         *
+         * @param size    is divider's width in pixels
+         * @param color   is divider's color
+         * @param padding is divider's top and bottom padding in pixels
+         * @param radius  is divider's corner radius in pixels
+         */
+        public Builder setDivider(int size, int color, int padding, int radius) {
+            hasDivider = true;
+            dividerSize = size;
+            dividerColor = color;
+            dividerPadding = padding;
+            dividerRadius = radius;
+            return this;
+        }
+
+        /**
+         * @param hasDivider if true divider will be shown
+         */
+        public Builder setDivider(boolean hasDivider) {
+            this.hasDivider = hasDivider;
+            return this;
+        }
+
+        public Builder setDividerFadeNearSelector(boolean dividerFadeNearSelector) {
+            this.dividerFadeNearSelector = dividerFadeNearSelector;
+            return this;
+        }
+
+        public Builder setRipple(boolean ripple) {
+            this.ripple = ripple;
+            return this;
+        }
+
+        public Builder setRippleColor(int rippleColor) {
+            this.rippleColor = rippleColor;
+            this.hasRippleColor = true;
+            return this;
+        }
+
+        public Builder setSingleRipple(boolean singleRipple) {
+            this.singleRipple = singleRipple;
+            return this;
+        }
+
+        /**
+         * @param size  is border's width in pixels, 0 for no border
+         * @param color is border's color
+         */
+        public Builder setBorder(int size, int color) {
+            borderSize = size;
+            borderColor = color;
+            return this;
+        }
+
+        /**
+         * Each group gets its own copy of the drawable from its constant state. A drawable without one is
+         * used as it is, so it should only be given to a single group.
+         */
+        public Builder setBackgroundDrawable(Drawable drawable) {
+            backgroundDrawable = drawable;
+            return this;
+        }
+
+        public Builder setSelectorBackgroundDrawable(Drawable drawable) {
+            selectorBackgroundDrawable = drawable;
+            return this;
+        }
+
+        public Builder setDividerBackgroundDrawable(Drawable drawable) {
+            dividerBackgroundDrawable = drawable;
+            return this;
+        }
+
+        public Builder setDraggable(boolean draggable) {
+            this.draggable = draggable;
+            return this;
+        }
+
+        public Builder setAnimationSnapshots(boolean animationSnapshots) {
+            this.animationSnapshots = animationSnapshots;
+            return this;
+        }
+
+        public Builder setBakeInterpolator(boolean bakeInterpolator) {
+            this.bakeInterpolator = bakeInterpolator;
+            return this;
+        }
+
+        /**
+         * @param stiffness    is used by drag and fling, same as sbg_springStiffness
+         * @param dampingRatio is used by drag and fling, same as sbg_springDampingRatio
+         */
+        public Builder setSpring(float stiffness, float dampingRatio) {
+            springStiffness = stiffness;
+            springDampingRatio = dampingRatio;
+            return this;
+        }
+
+        /**
+         * @param animationLayer is one of AnimationLayerNone, AnimationLayerAlways, AnimationLayerAuto
+         */
+        public Builder setAnimationLayer(int animationLayer) {
+            this.animationLayer = animationLayer;
+            return this;
+        }
+
+        public SegmentedGroupStyle build() {
+            return new SegmentedGroupStyle(this);
+        }
+    }
+}
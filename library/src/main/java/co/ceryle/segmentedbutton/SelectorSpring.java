@@ -0,0 +1,213 @@
+/*
+ * Copyright (C) 2016 ceryle
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package co.ceryle.segmentedbutton;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+/**
+ * Damped spring moving the selector towards a target position, in segment units.
+ * <p>
+ * Position is evaluated from the closed form solution of the spring at the frame's time since the spring
+ * was started, so it does not depend on the frame rate and a stalled frame does not slow the motion down,
+ * the next frame just lands further along. Frames come from Choreographer on API 16 and above, and from
+ * a ~60 Hz handler loop below that.
+ */
+final class SelectorSpring {
+
+    interface Listener {
+        void onSpringUpdate(float position);
+
+        void onSpringAtRest();
+    }
+
+    private static final float REST_DISPLACEMENT = 0.001f;
+    private static final float REST_VELOCITY = 0.01f;
+    private static final long FALLBACK_FRAME_DELAY = 16;
+
+    private final Listener listener;
+
+    private float stiffness = 400f, dampingRatio = 0.8f;
+
+    // state of the spring when it was (re)started
+    private float startDisplacement, startVelocity, target;
+    private long startTime;
+
+    private float position, velocity;
+    private boolean running;
+
+    private Object frameCallback;
+    private Handler handler;
+    private Runnable frameRunnable;
+
+    SelectorSpring(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * @param stiffness is the spring constant for a unit mass, higher is faster
+     */
+    void setStiffness(float stiffness) {
+        this.stiffness = Math.max(1f, stiffness);
+    }
+
+    float getStiffness() {
+        return stiffness;
+    }
+
+    /**
+     * @param dampingRatio 1 settles without overshooting, lower values bounce. Overdamped springs are not supported
+     */
+    void setDampingRatio(float dampingRatio) {
+        this.dampingRatio = Math.max(0.05f, Math.min(1f, dampingRatio));
+    }
+
+    float getDampingRatio() {
+        return dampingRatio;
+    }
+
+    boolean isRunning() {
+        return running;
+    }
+
+    float getTarget() {
+        return target;
+    }
+
+    /**
+     * Starts the spring from the given position and velocity
+     */
+    void start(float position, float velocity, float target) {
+        this.position = position;
+        this.velocity = velocity;
+        restart(target, System.nanoTime());
+    }
+
+    /**
+     * Moves the target of a running spring, the selector keeps its current position and velocity
+     */
+    void retarget(float target) {
+        if (!running) {
+            start(position, 0, target);
+            return;
+        }
+        long now = System.nanoTime();
+        evaluate(now);
+        restart(target, now);
+    }
+
+    void cancel() {
+        if (!running)
+            return;
+        running = false;
+        removeFrameCallback();
+    }
+
+    private void restart(float target, long now) {
+        this.target = target;
+        startDisplacement = position - target;
+        startVelocity = velocity;
+        startTime = now;
+
+        if (!running) {
+            running = true;
+            postFrameCallback();
+        }
+    }
+
+    private void doFrame(long frameTimeNanos) {
+        if (!running)
+            return;
+
+        evaluate(frameTimeNanos);
+
+        if (Math.abs(position - target) < REST_DISPLACEMENT && Math.abs(velocity) < REST_VELOCITY) {
+            position = target;
+            velocity = 0;
+            running = false;
+            listener.onSpringUpdate(position);
+            listener.onSpringAtRest();
+            return;
+        }
+
+        listener.onSpringUpdate(position);
+        postFrameCallback();
+    }
+
+    private void evaluate(long timeNanos) {
+        // frame time can be a little before the spring was started
+        float t = Math.max(0, timeNanos - startTime) / 1e9f;
+        float omega = (float) Math.sqrt(stiffness);
+        float d0 = startDisplacement, v0 = startVelocity;
+        float decay = (float) Math.exp(-dampingRatio * omega * t);
+
+        float displacement;
+        if (dampingRatio < 1f) {
+            float omegaD = omega * (float) Math.sqrt(1f - dampingRatio * dampingRatio);
+            float cos = (float) Math.cos(omegaD * t);
+            float sin = (float) Math.sin(omegaD * t);
+            displacement = decay * (d0 * cos + (v0 + dampingRatio * omega * d0) / omegaD * sin);
+            velocity = decay * (v0 * cos - (dampingRatio * omega * v0 + omega * omega * d0) / omegaD * sin);
+        } else {
+            float b = v0 + omega * d0;
+            displacement = decay * (d0 + b * t);
+            velocity = decay * (v0 - omega * b * t);
+        }
+        position = target + displacement;
+    }
+
+    private void postFrameCallback() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            Choreographer.getInstance().postFrameCallback(getFrameCallback());
+        } else {
+            if (null == handler) {
+                handler = new Handler(Looper.getMainLooper());
+                frameRunnable = new Runnable() {
+                    @Override
+                    public void run() {
+                        doFrame(System.nanoTime());
+                    }
+                };
+            }
+            handler.postDelayed(frameRunnable, FALLBACK_FRAME_DELAY);
+        }
+    }
+
+    private void removeFrameCallback() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            if (null != frameCallback)
+                Choreographer.getInstance().removeFrameCallback((Choreographer.FrameCallback) frameCallback);
+        } else if (null != handler) {
+            handler.removeCallbacks(frameRunnable);
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private Choreographer.FrameCallback getFrameCallback() {
+        if (null == frameCallback) {
+            frameCallback = new Choreographer.FrameCallback() {
+                @Override
+                public void doFrame(long frameTimeNanos) {
+                    SelectorSpring.this.doFrame(frameTimeNanos);
+                }
+            };
+        }
+        return (Choreographer.FrameCallback) frameCallback;
+    }
+}
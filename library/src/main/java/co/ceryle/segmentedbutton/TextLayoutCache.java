@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2016 ceryle
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package co.ceryle.segmentedbutton;
+
+import android.graphics.Typeface;
+import android.os.Build;
+import android.support.v4.util.LruCache;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+
+/**
+ * Process-wide cache of the text layouts used by segmented buttons.
+ * Layouts are keyed by text, width and the paint attributes that change text metrics, so buttons and groups
+ * showing the same label share one layout. Color is not part of the key, it is set on the layout's paint
+ * right before the layout is drawn.
+ */
+public final class TextLayoutCache {
+
+    private static final int MAX_SIZE = 256;
+
+    private static final LruCache<Key, StaticLayout> cache = new LruCache<>(MAX_SIZE);
+
+    private TextLayoutCache() {
+    }
+
+    /**
+     * @return a single line layout of the text, built with a copy of the paint if it is not cached yet
+     */
+    static StaticLayout obtain(String text, TextPaint paint, int width) {
+        Key key = new Key(text, paint, width);
+        StaticLayout layout = cache.get(key);
+        if (null == layout) {
+            layout = new StaticLayout(text, new TextPaint(paint), width, Layout.Alignment.ALIGN_NORMAL, 1.0f, 0, false);
+            cache.put(key, layout);
+        }
+        return layout;
+    }
+
+    /**
+     * @return how many times a requested layout was found in the cache
+     */
+    public static int getHitCount() {
+        return cache.hitCount();
+    }
+
+    /**
+     * @return how many times a requested layout had to be built
+     */
+    public static int getMissCount() {
+        return cache.missCount();
+    }
+
+    /**
+     * @return number of layouts currently cached
+     */
+    public static int getSize() {
+        return cache.size();
+    }
+
+    /**
+     * Removes all cached layouts, e.g. when the app is asked to trim its memory
+     */
+    public static void clear() {
+        cache.evictAll();
+    }
+
+    /**
+     * Identity of a layout: text, width and the paint attributes that change text metrics
+     */
+    static final class Key {
+        private final String text;
+        private final int width, flags;
+        private final float textSize, textScaleX, textSkewX, letterSpacing;
+        private final Typeface typeface;
+        private final int hashCode;
+
+        Key(String text, TextPaint paint, int width) {
+            this.text = text;
+            this.width = width;
+            this.flags = paint.getFlags();
+            this.textSize = paint.getTextSize();
+            this.textScaleX = paint.getTextScaleX();
+            this.textSkewX = paint.getTextSkewX();
+            this.letterSpacing = Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP ? paint.getLetterSpacing() : 0;
+            this.typeface = paint.getTypeface();
+
+            int result = text.hashCode();
+            result = 31 * result + width;
+            result = 31 * result + flags;
+            result = 31 * result + Float.floatToIntBits(textSize);
+            result = 31 * result + Float.floatToIntBits(textScaleX);
+            result = 31 * result + Float.floatToIntBits(textSkewX);
+            result = 31 * result + Float.floatToIntBits(letterSpacing);
+            result = 31 * result + (null != typeface ? typeface.hashCode() : 0);
+            hashCode = result;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (!(o instanceof Key))
+                return false;
+            Key key = (Key) o;
+            return hashCode == key.hashCode
+                    && width == key.width
+                    && flags == key.flags
+                    && textSize == key.textSize
+                    && textScaleX == key.textScaleX
+                    && textSkewX == key.textSkewX
+                    && letterSpacing == key.letterSpacing
+                    && (null != typeface ? typeface.equals(key.typeface) : null == key.typeface)
+                    && text.equals(key.text);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2016 ceryle
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package co.ceryle.segmentedbutton;
+
+import android.graphics.Typeface;
+import android.os.AsyncTask;
+import android.os.Build;
+import android.text.TextPaint;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.Executor;
+
+/**
+ * Builds label layouts ahead of time and puts them into {@link TextLayoutCache}, so buttons find them
+ * instead of laying out text on the UI thread while they are inflated or measured.
+ * <p>
+ * Call it as soon as labels are known, e.g. before setContentView or from a RecyclerView prefetch,
+ * with the same text size and typeface the buttons are going to use:
+ * <pre>
+ * TextPrecomputer.precompute(labels, textSizeInPx, typeface);
+ * </pre>
+ * Layouts are built on a background executor on API 23 and above. On older platforms text layout is not
+ * safe to run off the UI thread, so layouts are built synchronously on the calling thread.
+ */
+public final class TextPrecomputer {
+
+    private static Executor executor = AsyncTask.THREAD_POOL_EXECUTOR;
+
+    private TextPrecomputer() {
+    }
+
+    /**
+     * @param executor runs background layout work
+     *                 default: AsyncTask.THREAD_POOL_EXECUTOR
+     */
+    public static void setExecutor(Executor executor) {
+        TextPrecomputer.executor = executor;
+    }
+
+    /**
+     * @param text     is the label to lay out
+     * @param textSize is the label's text size in pixels, same as sb_textSize
+     * @param typeface is the label's typeface, null for the default one
+     */
+    public static void precompute(String text, float textSize, Typeface typeface) {
+        ArrayList<String> labels = new ArrayList<>(1);
+        labels.add(text);
+        precompute(labels, textSize, typeface);
+    }
+
+    /**
+     * @param labels   are the labels to lay out, e.g. labels of the rows a RecyclerView is about to bind
+     * @param textSize is the labels' text size in pixels, same as sb_textSize
+     * @param typeface is the labels' typeface, null for the default one
+     */
+    public static void precompute(Collection<String> labels, float textSize, Typeface typeface) {
+        precompute(labels, SegmentedButton.createTextPaint(textSize, typeface));
+    }
+
+    /**
+     * @param template is a button whose text size and typeface are used for the labels
+     * @param labels   are the labels to lay out
+     */
+    public static void precompute(SegmentedButton template, Collection<String> labels) {
+        TextPaint textPaint = template.getTextPaint();
+        if (null != textPaint)
+            precompute(labels, new TextPaint(textPaint));
+    }
+
+    private static void precompute(Collection<String> labels, final TextPaint textPaint) {
+        final ArrayList<String> texts = new ArrayList<>(labels);
+
+        Runnable layoutTask = new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < texts.size(); i++) {
+                    String text = texts.get(i);
+                    if (null != text)
+                        TextLayoutCache.obtain(text, textPaint, (int) textPaint.measureText(text));
+                }
+            }
+        };
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M && null != executor)
+            executor.execute(layoutTask);
+        else
+            layoutTask.run();
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2016 ceryle
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package co.ceryle.segmentedbutton;
+
+import android.content.res.AssetManager;
+import android.graphics.Typeface;
+import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Process-wide cache of typefaces loaded from assets, keyed by asset path. Every button using the same
+ * sb_textTypefacePath shares one Typeface, and the asset is read only once.
+ */
+public final class TypefaceCache {
+
+    private static final String TAG = "TypefaceCache";
+
+    private static final HashMap<String, Typeface> typefaces = new HashMap<>();
+    private static final HashMap<String, Long> loadTimes = new HashMap<>();
+    private static final HashMap<String, ArrayList<Callback>> pendingCallbacks = new HashMap<>();
+
+    private static Handler mainHandler;
+
+    private TypefaceCache() {
+    }
+
+    interface Callback {
+        void onTypefaceLoaded(String path, Typeface typeface);
+    }
+
+    /**
+     * @return typeface of the asset, read synchronously if it is not cached yet
+     */
+    static Typeface get(AssetManager assets, String path) {
+        synchronized (typefaces) {
+            Typeface typeface = typefaces.get(path);
+            if (null != typeface)
+                return typeface;
+        }
+        return load(assets, path);
+    }
+
+    /**
+     * Calls back on the main thread once the typeface is loaded on a background thread.
+     * If it is already cached, callback is called right away.
+     */
+    static void getAsync(final AssetManager assets, final String path, Callback callback) {
+        synchronized (typefaces) {
+            Typeface typeface = typefaces.get(path);
+            if (null != typeface) {
+                callback.onTypefaceLoaded(path, typeface);
+                return;
+            }
+
+            ArrayList<Callback> callbacks = pendingCallbacks.get(path);
+            if (null != callbacks) {
+                callbacks.add(callback);
+                return;
+            }
+            callbacks = new ArrayList<>();
+            callbacks.add(callback);
+            pendingCallbacks.put(path, callbacks);
+
+            if (null == mainHandler)
+                mainHandler = new Handler(Looper.getMainLooper());
+        }
+
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                final Typeface typeface = load(assets, path);
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        ArrayList<Callback> callbacks;
+                        synchronized (typefaces) {
+                            callbacks = pendingCallbacks.remove(path);
+                        }
+                        if (null == callbacks || null == typeface)
+                            return;
+                        for (int i = 0; i < callbacks.size(); i++)
+                            callbacks.get(i).onTypefaceLoaded(path, typeface);
+                    }
+                });
+            }
+        });
+    }
+
+    private static Typeface load(AssetManager assets, String path) {
+        long start = SystemClock.elapsedRealtime();
+        Typeface typeface;
+        try {
+            typeface = Typeface.createFromAsset(assets, path);
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Could not load typeface " + path, e);
+            return null;
+        }
+        long loadTime = SystemClock.elapsedRealtime() - start;
+
+        synchronized (typefaces) {
+            // another thread may have loaded it meanwhile, keep the first one so buttons share it
+            Typeface cached = typefaces.get(path);
+            if (null != cached)
+                return cached;
+            typefaces.put(path, typeface);
+            loadTimes.put(path, loadTime);
+        }
+        return typeface;
+    }
+
+    /**
+     * @return number of cached typefaces
+     */
+    public static int getSize() {
+        synchronized (typefaces) {
+            return typefaces.size();
+        }
+    }
+
+    /**
+     * @param path is the typeface's path in assets folder
+     * @return how long it took to load the typeface in milliseconds, -1 if it is not loaded
+     */
+    public static long getLoadTime(String path) {
+        synchronized (typefaces) {
+            Long loadTime = loadTimes.get(path);
+            return null != loadTime ? loadTime : -1;
+        }
+    }
+
+    /**
+     * @return total time spent loading cached typefaces in milliseconds
+     */
+    public static long getTotalLoadTime() {
+        synchronized (typefaces) {
+            long total = 0;
+            for (Long loadTime : loadTimes.values())
+                total += loadTime;
+            return total;
+        }
+    }
+}
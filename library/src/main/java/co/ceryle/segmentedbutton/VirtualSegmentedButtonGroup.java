@@ -0,0 +1,760 @@
+/*
+ * Copyright (C) 2016 ceryle
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package co.ceryle.segmentedbutton;
+
+import android.animation.ValueAnimator;
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffColorFilter;
+import android.graphics.RectF;
+import android.graphics.Typeface;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.Parcelable;
+import android.support.v4.util.LruCache;
+import android.support.v4.view.animation.FastOutSlowInInterpolator;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.text.TextUtils;
+import android.util.AttributeSet;
+import android.util.SparseArray;
+import android.view.MotionEvent;
+import android.view.VelocityTracker;
+import android.view.View;
+import android.view.ViewConfiguration;
+import android.view.ViewParent;
+import android.widget.OverScroller;
+
+import java.util.ArrayList;
+
+/**
+ * Horizontally scrolling segmented control for long segment lists, e.g. category pickers with hundreds of entries.
+ * <p>
+ * Segments come from a {@link SegmentSource} and are not views: the group keeps render state (text layout and icon)
+ * only for the segments currently on screen, recycles it as segments scroll out, and asks the source for texts
+ * and icons only when a segment becomes visible. All segments have the same width, so nothing but the visible
+ * segments is ever measured. The selected segment is smooth-scrolled into view when it changes.
+ */
+public class VirtualSegmentedButtonGroup extends View {
+
+    /**
+     * Adapter-style source of segments. Texts and icons are requested lazily, while segments are on screen.
+     */
+    public interface SegmentSource {
+        int getCount();
+
+        String getText(int position);
+
+        /**
+         * @return icon shown before the text, or null
+         */
+        Drawable getIcon(int position);
+    }
+
+    /**
+     * Ellipsized layouts of recently visible labels. Kept per group, so scrolling through hundreds of labels does not
+     * evict the layouts of buttons from {@link TextLayoutCache}.
+     */
+    private static final int LAYOUT_CACHE_SIZE = 64;
+
+    private static final class SegmentState {
+        private int position = -1;
+        private StaticLayout layout;
+        private Drawable icon;
+    }
+
+    public VirtualSegmentedButtonGroup(Context context) {
+        super(context);
+        init(null);
+    }
+
+    public VirtualSegmentedButtonGroup(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        init(attrs);
+    }
+
+    public VirtualSegmentedButtonGroup(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        init(attrs);
+    }
+
+    private SegmentSource source;
+
+    private final SparseArray<SegmentState> visibleStates = new SparseArray<>();
+    private final ArrayList<SegmentState> statePool = new ArrayList<>();
+    private int firstVisible = 0, lastVisible = -1;
+
+    private final LruCache<TextLayoutCache.Key, StaticLayout> layoutCache = new LruCache<>(LAYOUT_CACHE_SIZE);
+
+    private TextPaint textPaint;
+    private Paint paint;
+    private RectF rectF = new RectF();
+    private RectF selectorRect = new RectF();
+
+    private int segmentWidth, textColor, textColorOnSelection, selectorColor, backgroundColor, dividerColor, dividerSize,
+            radius, drawablePadding, position, animateSelectorDuration;
+
+    private float selectorPosition;
+
+    private PorterDuffColorFilter iconColorFilter, iconColorFilterOnSelection;
+
+    private OverScroller scroller;
+    private VelocityTracker velocityTracker;
+    private int touchSlop, minimumFlingVelocity, maximumFlingVelocity;
+    private float downX, lastX;
+    private boolean dragging, stoppedScroll;
+
+    private ValueAnimator selectorAnimator;
+    private float animationFrom, animationTo;
+
+    private SegmentedButtonGroup.OnPositionChangedListener onPositionChangedListener;
+
+    private void init(AttributeSet attrs) {
+        getAttributes(attrs);
+
+        paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+        scroller = new OverScroller(getContext());
+        ViewConfiguration configuration = ViewConfiguration.get(getContext());
+        touchSlop = configuration.getScaledTouchSlop();
+        minimumFlingVelocity = configuration.getScaledMinimumFlingVelocity();
+        maximumFlingVelocity = configuration.getScaledMaximumFlingVelocity();
+
+        selectorPosition = position;
+        setHorizontalScrollBarEnabled(false);
+        setWillNotDraw(false);
+    }
+
+    private void getAttributes(AttributeSet attrs) {
+        TypedArray ta = getContext().obtainStyledAttributes(attrs, R.styleable.VirtualSegmentedButtonGroup);
+
+        segmentWidth = ta.getDimensionPixelSize(R.styleable.VirtualSegmentedButtonGroup_sbg_segmentWidth,
+                ConversionHelper.dpToPx(getContext(), 96));
+        selectorColor = ta.getColor(R.styleable.VirtualSegmentedButtonGroup_sbg_selectorColor, Color.GRAY);
+        backgroundColor = ta.getColor(R.styleable.VirtualSegmentedButtonGroup_sbg_backgroundColor, Color.TRANSPARENT);
+        dividerColor = ta.getColor(R.styleable.VirtualSegmentedButtonGroup_sbg_dividerColor, Color.WHITE);
+        dividerSize = ta.getDimensionPixelSize(R.styleable.VirtualSegmentedButtonGroup_sbg_dividerSize, 0);
+        radius = ta.getDimensionPixelSize(R.styleable.VirtualSegmentedButtonGroup_sbg_radius, 0);
+        position = ta.getInt(R.styleable.VirtualSegmentedButtonGroup_sbg_position, 0);
+        animateSelectorDuration = ta.getInt(R.styleable.VirtualSegmentedButtonGroup_sbg_animateSelectorDuration, 500);
+
+        float textSize = ta.getDimension(R.styleable.VirtualSegmentedButtonGroup_sb_textSize,
+                ConversionHelper.spToPx(getContext(), 14));
+        textPaint = SegmentedButton.createTextPaint(textSize, null);
+        textColor = ta.getColor(R.styleable.VirtualSegmentedButtonGroup_sb_textColor, Color.GRAY);
+        textColorOnSelection = ta.getColor(R.styleable.VirtualSegmentedButtonGroup_sb_textColor_onSelection, Color.WHITE);
+        drawablePadding = ta.getDimensionPixelSize(R.styleable.VirtualSegmentedButtonGroup_sb_drawablePadding, 0);
+
+        // icons under the selector take the selected text color unless a tint is given
+        if (ta.hasValue(R.styleable.VirtualSegmentedButtonGroup_sb_drawableTint))
+            setDrawableTint(ta.getColor(R.styleable.VirtualSegmentedButtonGroup_sb_drawableTint, 0));
+        setDrawableTintOnSelection(ta.getColor(R.styleable.VirtualSegmentedButtonGroup_sb_drawableTint_onSelection,
+                textColorOnSelection));
+
+        ta.recycle();
+    }
+
+    /**
+     * @param source provides segments, texts and icons are asked for only while their segment is visible
+     */
+    public void setSource(SegmentSource source) {
+        this.source = source;
+        notifySegmentsChanged();
+    }
+
+    public SegmentSource getSource() {
+        return source;
+    }
+
+    /**
+     * Call it when segments of the source changed. Visible render state is dropped and built again.
+     */
+    public void notifySegmentsChanged() {
+        layoutCache.evictAll();
+        recycleAllStates();
+
+        int count = getSegmentCount();
+        if (position >= count)
+            position = Math.max(0, count - 1);
+        cancelSelectorAnimation();
+        selectorPosition = position;
+        // a shorter list may end before the current scroll position
+        scrollTo(clampScroll(getScrollX()), 0);
+        updateVisibleStates();
+
+        requestLayout();
+        invalidate();
+    }
+
+    private int getSegmentCount() {
+        return null == source ? 0 : source.getCount();
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int contentWidth = getSegmentCount() * segmentWidth;
+
+        Paint.FontMetricsInt fontMetrics = textPaint.getFontMetricsInt();
+        int contentHeight = fontMetrics.descent - fontMetrics.ascent + ConversionHelper.dpToPx(getContext(), 24);
+
+        int width = resolveSize(Math.max(contentWidth + getPaddingLeft() + getPaddingRight(), getSuggestedMinimumWidth()),
+                widthMeasureSpec);
+        int height = resolveSize(Math.max(contentHeight + getPaddingTop() + getPaddingBottom(), getSuggestedMinimumHeight()),
+                heightMeasureSpec);
+        setMeasuredDimension(width, height);
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        scrollTo(clampScroll(getScrollX()), 0);
+        if (oldw == 0)
+            scrollTo(clampScroll(getScrollForPosition(position, getScrollX())), 0);
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        super.onLayout(changed, left, top, right, bottom);
+        updateVisibleStates();
+    }
+
+    @Override
+    protected void onScrollChanged(int l, int t, int oldl, int oldt) {
+        super.onScrollChanged(l, t, oldl, oldt);
+        updateVisibleStates();
+    }
+
+    private int getContentWidth() {
+        return Math.max(0, getWidth() - getPaddingLeft() - getPaddingRight());
+    }
+
+    private int getScrollRange() {
+        return Math.max(0, getSegmentCount() * segmentWidth - getContentWidth());
+    }
+
+    private int clampScroll(int scrollX) {
+        return Math.max(0, Math.min(getScrollRange(), scrollX));
+    }
+
+    @Override
+    protected int computeHorizontalScrollRange() {
+        return getSegmentCount() * segmentWidth;
+    }
+
+    @Override
+    protected int computeHorizontalScrollExtent() {
+        return getContentWidth();
+    }
+
+    @Override
+    protected int computeHorizontalScrollOffset() {
+        return getScrollX();
+    }
+
+    /**
+     * Binds render state of segments that scrolled into view and recycles the state of those that left it.
+     * Runs on scroll and layout changes, never while drawing.
+     */
+    private void updateVisibleStates() {
+        int count = getSegmentCount();
+        int first = 0, last = -1;
+        if (null != source && count > 0 && segmentWidth > 0 && getContentWidth() > 0) {
+            first = Math.max(0, getScrollX() / segmentWidth);
+            last = Math.min(count - 1, (getScrollX() + getContentWidth() - 1) / segmentWidth);
+        }
+
+        if (first == firstVisible && last == lastVisible && visibleStates.size() == Math.max(0, last - first + 1))
+            return;
+
+        for (int i = visibleStates.size() - 1; i >= 0; i--) {
+            int statePosition = visibleStates.keyAt(i);
+            if (statePosition < first || statePosition > last) {
+                recycleState(visibleStates.valueAt(i));
+                visibleStates.removeAt(i);
+            }
+        }
+
+        for (int p = first; p <= last; p++) {
+            if (null == visibleStates.get(p))
+                visibleStates.put(p, bindState(p));
+        }
+
+        firstVisible = first;
+        lastVisible = last;
+    }
+
+    private SegmentState bindState(int position) {
+        SegmentState state = statePool.isEmpty() ? new SegmentState() : statePool.remove(statePool.size() - 1);
+        state.position = position;
+
+        state.icon = copyIcon(source.getIcon(position));
+        int iconWidth = 0;
+        if (null != state.icon) {
+            iconWidth = state.icon.getIntrinsicWidth();
+            state.icon.setBounds(0, 0, iconWidth, state.icon.getIntrinsicHeight());
+        }
+
+        state.layout = null;
+        String text = source.getText(position);
+        int maxWidth = segmentWidth - dividerSize - (iconWidth > 0 ? iconWidth + drawablePadding : 0);
+        if (null != text && text.length() > 0 && maxWidth > 0)
+            state.layout = obtainLayout(text, maxWidth);
+        return state;
+    }
+
+    /**
+     * @return a copy of the source's icon, so bounds and tint set here do not leak into other users of the drawable
+     */
+    private Drawable copyIcon(Drawable icon) {
+        if (null == icon)
+            return null;
+        Drawable.ConstantState state = icon.getConstantState();
+        return (null != state ? state.newDrawable(getResources()) : icon).mutate();
+    }
+
+    /**
+     * @return layout of the text, ellipsized when it is wider than maxWidth so it does not run over neighbours and
+     * dividers. Cached by the original text, so segments scrolling back into view skip measuring and ellipsizing.
+     */
+    private StaticLayout obtainLayout(String text, int maxWidth) {
+        TextLayoutCache.Key key = new TextLayoutCache.Key(text, textPaint, maxWidth);
+        StaticLayout layout = layoutCache.get(key);
+        if (null == layout) {
+            int textWidth = (int) Math.ceil(textPaint.measureText(text));
+            if (textWidth > maxWidth) {
+                text = TextUtils.ellipsize(text, textPaint, maxWidth, TextUtils.TruncateAt.END).toString();
+                textWidth = Math.min(maxWidth, (int) Math.ceil(textPaint.measureText(text)));
+            }
+            layout = new StaticLayout(text, new TextPaint(textPaint), textWidth, Layout.Alignment.ALIGN_NORMAL, 1.0f, 0,
+                    false);
+            layoutCache.put(key, layout);
+        }
+        return layout;
+    }
+
+    private void recycleState(SegmentState state) {
+        state.position = -1;
+        state.layout = null;
+        state.icon = null;
+        statePool.add(state);
+    }
+
+    /**
+     * Drops the visible render state and binds it again, for changes that affect how labels are laid out
+     */
+    private void rebindVisibleStates() {
+        recycleAllStates();
+        updateVisibleStates();
+    }
+
+    private void recycleAllStates() {
+        for (int i = 0; i < visibleStates.size(); i++)
+            recycleState(visibleStates.valueAt(i));
+        visibleStates.clear();
+        firstVisible = 0;
+        lastVisible = -1;
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+
+        int scrollX = getScrollX();
+        float top = getPaddingTop(), bottom = getHeight() - getPaddingBottom();
+
+        rectF.set(scrollX, 0, scrollX + getWidth(), getHeight());
+        paint.setColor(backgroundColor);
+        canvas.drawRoundRect(rectF, radius, radius, paint);
+
+        canvas.save();
+        canvas.clipRect(scrollX + getPaddingLeft(), top, scrollX + getWidth() - getPaddingRight(), bottom);
+
+        if (getSegmentCount() > 0) {
+            float selectorLeft = getPaddingLeft() + selectorPosition * segmentWidth;
+            selectorRect.set(selectorLeft, top, selectorLeft + segmentWidth, bottom);
+            paint.setColor(selectorColor);
+            canvas.drawRoundRect(selectorRect, radius, radius, paint);
+        } else {
+            selectorRect.setEmpty();
+        }
+
+        for (int i = 0; i < visibleStates.size(); i++) {
+            SegmentState state = visibleStates.valueAt(i);
+            float left = getPaddingLeft() + state.position * segmentWidth;
+
+            if (dividerSize > 0 && state.position > 0) {
+                paint.setColor(dividerColor);
+                canvas.drawRect(left - dividerSize / 2f, top, left + dividerSize / 2f, bottom, paint);
+            }
+
+            drawSegment(canvas, state, left, textColor, iconColorFilter);
+
+            // selected look where the selector covers the segment
+            if (selectorRect.right > left && selectorRect.left < left + segmentWidth) {
+                canvas.save();
+                canvas.clipRect(selectorRect);
+                drawSegment(canvas, state, left, textColorOnSelection, iconColorFilterOnSelection);
+                canvas.restore();
+            }
+        }
+        canvas.restore();
+    }
+
+    private void drawSegment(Canvas canvas, SegmentState state, float left, int color,
+                             PorterDuffColorFilter colorFilter) {
+        int iconWidth = null != state.icon ? state.icon.getBounds().width() : 0;
+        int textWidth = null != state.layout ? state.layout.getWidth() : 0;
+        int gap = iconWidth > 0 && textWidth > 0 ? drawablePadding : 0;
+
+        float x = left + (segmentWidth - iconWidth - gap - textWidth) / 2f;
+        float centerY = getPaddingTop() + (getHeight() - getPaddingTop() - getPaddingBottom()) / 2f;
+
+        if (null != state.icon) {
+            canvas.save();
+            canvas.translate(x, centerY - state.icon.getBounds().height() / 2f);
+            state.icon.setColorFilter(colorFilter);
+            state.icon.draw(canvas);
+            canvas.restore();
+        }
+
+        if (null != state.layout) {
+            state.layout.getPaint().setColor(color);
+            canvas.save();
+            canvas.translate(x + iconWidth + gap, centerY - state.layout.getHeight() / 2f);
+            state.layout.draw(canvas);
+            canvas.restore();
+        }
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        if (!isEnabled())
+            return false;
+
+        if (null == velocityTracker)
+            velocityTracker = VelocityTracker.obtain();
+        velocityTracker.addMovement(event);
+
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                // a tap that stops a fling does not select
+                stoppedScroll = !scroller.isFinished();
+                if (stoppedScroll)
+                    scroller.abortAnimation();
+                downX = lastX = event.getX();
+                break;
+            case MotionEvent.ACTION_MOVE:
+                float x = event.getX();
+                if (!dragging && Math.abs(x - downX) > touchSlop) {
+                    dragging = true;
+                    ViewParent parent = getParent();
+                    if (null != parent)
+                        parent.requestDisallowInterceptTouchEvent(true);
+                }
+                if (dragging) {
+                    scrollTo(clampScroll(getScrollX() + (int) (lastX - x)), 0);
+                    lastX = x;
+                }
+                break;
+            case MotionEvent.ACTION_UP:
+                if (dragging) {
+                    velocityTracker.computeCurrentVelocity(1000, maximumFlingVelocity);
+                    int velocity = (int) velocityTracker.getXVelocity();
+                    if (Math.abs(velocity) > minimumFlingVelocity) {
+                        scroller.fling(getScrollX(), 0, -velocity, 0, 0, getScrollRange(), 0, 0);
+                        postInvalidateOnAnimationCompat();
+                    }
+                } else if (!stoppedScroll) {
+                    int segment = getSegmentAt(event.getX());
+                    if (segment >= 0)
+                        toggle(segment, animateSelectorDuration);
+                }
+                endTouch();
+                break;
+            case MotionEvent.ACTION_CANCEL:
+                endTouch();
+                break;
+        }
+        return true;
+    }
+
+    private void endTouch() {
+        dragging = false;
+        if (null != velocityTracker) {
+            velocityTracker.recycle();
+            velocityTracker = null;
+        }
+    }
+
+    /**
+     * @return segment under x in view coordinates, or -1 if there is none
+     */
+    private int getSegmentAt(float x) {
+        if (segmentWidth <= 0)
+            return -1;
+        float contentX = x + getScrollX() - getPaddingLeft();
+        int segment = (int) Math.floor(contentX / segmentWidth);
+        return segment >= 0 && segment < getSegmentCount() ? segment : -1;
+    }
+
+    @Override
+    public void computeScroll() {
+        if (scroller.computeScrollOffset()) {
+            scrollTo(clampScroll(scroller.getCurrX()), 0);
+            postInvalidateOnAnimationCompat();
+        }
+    }
+
+    private void postInvalidateOnAnimationCompat() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN)
+            postInvalidateOnAnimation();
+        else
+            invalidate();
+    }
+
+    /**
+     * @return scroll position that shows the whole segment, as close to the current scroll as possible
+     */
+    private int getScrollForPosition(int position, int scrollX) {
+        int left = position * segmentWidth;
+        int right = left + segmentWidth;
+        if (left < scrollX)
+            return left;
+        if (right > scrollX + getContentWidth())
+            return right - getContentWidth();
+        return scrollX;
+    }
+
+    private void smoothScrollToPosition(int position) {
+        int target = clampScroll(getScrollForPosition(position, getScrollX()));
+        if (target == getScrollX())
+            return;
+        if (!scroller.isFinished())
+            scroller.abortAnimation();
+        scroller.startScroll(getScrollX(), 0, target - getScrollX(), 0, animateSelectorDuration);
+        postInvalidateOnAnimationCompat();
+    }
+
+    private void toggle(int position, int duration) {
+        if (this.position == position)
+            return;
+        this.position = position;
+
+        startSelectorAnimation(position, duration);
+        smoothScrollToPosition(position);
+
+        if (null != onPositionChangedListener)
+            onPositionChangedListener.onPositionChanged(position);
+    }
+
+    private final ValueAnimator.AnimatorUpdateListener selectorUpdateListener = new ValueAnimator.AnimatorUpdateListener() {
+        @Override
+        public void onAnimationUpdate(ValueAnimator animation) {
+            float fraction = Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB_MR1
+                    ? animation.getAnimatedFraction() : (Float) animation.getAnimatedValue();
+            selectorPosition = animationFrom + (animationTo - animationFrom) * fraction;
+            invalidate();
+        }
+    };
+
+    private void startSelectorAnimation(float to, int duration) {
+        if (null == selectorAnimator) {
+            selectorAnimator = ValueAnimator.ofFloat(0f, 1f);
+            selectorAnimator.setInterpolator(new FastOutSlowInInterpolator());
+            selectorAnimator.addUpdateListener(selectorUpdateListener);
+        } else {
+            selectorAnimator.cancel();
+        }
+        animationFrom = selectorPosition;
+        animationTo = to;
+        selectorAnimator.setDuration(duration);
+        selectorAnimator.start();
+    }
+
+    private void cancelSelectorAnimation() {
+        if (null != selectorAnimator)
+            selectorAnimator.cancel();
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        updateVisibleStates();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        cancelSelectorAnimation();
+        selectorPosition = position;
+        if (!scroller.isFinished()) {
+            scroller.abortAnimation();
+            scrollTo(clampScroll(getScrollForPosition(position, getScrollX())), 0);
+        }
+        endTouch();
+        recycleAllStates();
+        super.onDetachedFromWindow();
+    }
+
+    /**
+     * @param position      selects the segment and scrolls it into view
+     * @param withAnimation if true selector slides and the group smooth-scrolls to the segment
+     */
+    public void setPosition(int position, boolean withAnimation) {
+        if (withAnimation && getWidth() > 0) {
+            toggle(position, animateSelectorDuration);
+            return;
+        }
+
+        cancelSelectorAnimation();
+        boolean changed = this.position != position;
+        this.position = position;
+        selectorPosition = position;
+        scrollTo(clampScroll(getScrollForPosition(position, getScrollX())), 0);
+        invalidate();
+
+        if (changed && null != onPositionChangedListener)
+            onPositionChangedListener.onPositionChanged(position);
+    }
+
+    public void setPosition(int position) {
+        setPosition(position, true);
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    public void setOnPositionChangedListener(SegmentedButtonGroup.OnPositionChangedListener onPositionChangedListener) {
+        this.onPositionChangedListener = onPositionChangedListener;
+    }
+
+    /**
+     * @param segmentWidth is the width of every segment in pixels
+     */
+    public void setSegmentWidth(int segmentWidth) {
+        this.segmentWidth = segmentWidth;
+        // labels are ellipsized to the segment width
+        rebindVisibleStates();
+        requestLayout();
+        invalidate();
+    }
+
+    public int getSegmentWidth() {
+        return segmentWidth;
+    }
+
+    /**
+     * @param textSize is the text size of segments in pixels
+     */
+    public void setTextSize(float textSize) {
+        textPaint = SegmentedButton.createTextPaint(textSize, textPaint.getTypeface());
+        layoutCache.evictAll();
+        rebindVisibleStates();
+        requestLayout();
+        invalidate();
+    }
+
+    public void setTypeface(Typeface typeface) {
+        textPaint = SegmentedButton.createTextPaint(textPaint.getTextSize(), typeface);
+        layoutCache.evictAll();
+        rebindVisibleStates();
+        requestLayout();
+        invalidate();
+    }
+
+    public void setTextColor(int textColor) {
+        this.textColor = textColor;
+        invalidate();
+    }
+
+    public void setTextColorOnSelection(int textColorOnSelection) {
+        this.textColorOnSelection = textColorOnSelection;
+        invalidate();
+    }
+
+    public void setSelectorColor(int selectorColor) {
+        this.selectorColor = selectorColor;
+        invalidate();
+    }
+
+    @Override
+    public void setBackgroundColor(int backgroundColor) {
+        this.backgroundColor = backgroundColor;
+        invalidate();
+    }
+
+    public void setDividerColor(int dividerColor) {
+        this.dividerColor = dividerColor;
+        invalidate();
+    }
+
+    public void setDividerSize(int dividerSize) {
+        this.dividerSize = dividerSize;
+        rebindVisibleStates();
+        invalidate();
+    }
+
+    /**
+     * @param drawableTint null keeps icons' colors outside the selector
+     */
+    public void setDrawableTint(Integer drawableTint) {
+        iconColorFilter = null != drawableTint ? new PorterDuffColorFilter(drawableTint, PorterDuff.Mode.SRC_IN) : null;
+        invalidate();
+    }
+
+    /**
+     * @param drawableTintOnSelection null keeps icons' colors under the selector
+     */
+    public void setDrawableTintOnSelection(Integer drawableTintOnSelection) {
+        iconColorFilterOnSelection = null != drawableTintOnSelection
+                ? new PorterDuffColorFilter(drawableTintOnSelection, PorterDuff.Mode.SRC_IN) : null;
+        invalidate();
+    }
+
+    public void setRadius(int radius) {
+        this.radius = radius;
+        invalidate();
+    }
+
+    public void setSelectorAnimationDuration(int animateSelectorDuration) {
+        this.animateSelectorDuration = animateSelectorDuration;
+    }
+
+    @Override
+    public Parcelable onSaveInstanceState() {
+        Bundle bundle = new Bundle();
+        bundle.putParcelable("state", super.onSaveInstanceState());
+        bundle.putInt("position", position);
+        return bundle;
+    }
+
+    @Override
+    public void onRestoreInstanceState(Parcelable state) {
+        if (state instanceof Bundle) {
+            Bundle bundle = (Bundle) state;
+            position = bundle.getInt("position");
+            selectorPosition = position;
+            state = bundle.getParcelable("state");
+        }
+        super.onRestoreInstanceState(state);
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2016 ceryle
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package co.ceryle.segmentedbutton;
+
+import android.view.animation.Interpolator;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class LookupTableInterpolatorTest {
+
+    /**
+     * Same curve as android's AccelerateDecelerateInterpolator, written in plain Java so it runs on the JVM
+     */
+    private static final Interpolator ACCELERATE_DECELERATE = new Interpolator() {
+        @Override
+        public float getInterpolation(float input) {
+            return (float) (Math.cos((input + 1) * Math.PI) / 2.0f) + 0.5f;
+        }
+    };
+
+    private static final Interpolator OVERSHOOT = new Interpolator() {
+        @Override
+        public float getInterpolation(float input) {
+            float t = input - 1.0f;
+            return t * t * (3 * t + 2) + 1.0f;
+        }
+    };
+
+    @Test
+    public void tableIsCloseToSource() {
+        LookupTableInterpolator table = LookupTableInterpolator.obtain(ACCELERATE_DECELERATE);
+        assertTrue(table.getMaxError(ACCELERATE_DECELERATE) < 1e-4f);
+    }
+
+    @Test
+    public void tableFollowsOvershoot() {
+        LookupTableInterpolator table = LookupTableInterpolator.obtain(OVERSHOOT);
+        assertTrue(table.getMaxError(OVERSHOOT) < 1e-3f);
+        assertEquals(OVERSHOOT.getInterpolation(0.75f), table.getInterpolation(0.75f), 1e-3f);
+    }
+
+    @Test
+    public void endsMatchSource() {
+        LookupTableInterpolator table = LookupTableInterpolator.obtain(ACCELERATE_DECELERATE);
+        assertEquals(0f, table.getInterpolation(0f), 1e-6f);
+        assertEquals(1f, table.getInterpolation(1f), 1e-6f);
+        assertEquals(0f, table.getInterpolation(-1f), 1e-6f);
+        assertEquals(1f, table.getInterpolation(2f), 1e-6f);
+    }
+
+    @Test
+    public void sameSourceSharesTable() {
+        assertSame(LookupTableInterpolator.obtain(OVERSHOOT), LookupTableInterpolator.obtain(OVERSHOOT));
+    }
+
+    @Test
+    public void tableIsNotBakedAgain() {
+        LookupTableInterpolator table = LookupTableInterpolator.obtain(OVERSHOOT);
+        assertSame(table, LookupTableInterpolator.obtain(table));
+    }
+
+    private static final int BENCHMARK_FRAMES = 1000000;
+
+    /**
+     * Prints the cost of a table lookup next to evaluating the source directly, one call per simulated frame.
+     * Nothing is asserted about timing, it depends on the machine; only the two sums are checked, which also keeps
+     * the loops from being optimized away.
+     */
+    @Test
+    public void benchmarkTableAgainstSource() {
+        LookupTableInterpolator table = LookupTableInterpolator.obtain(ACCELERATE_DECELERATE);
+
+        // warm up both paths before measuring
+        runFrames(table, BENCHMARK_FRAMES);
+        runFrames(ACCELERATE_DECELERATE, BENCHMARK_FRAMES);
+
+        long start = System.nanoTime();
+        double tableSum = runFrames(table, BENCHMARK_FRAMES);
+        long tableTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        double sourceSum = runFrames(ACCELERATE_DECELERATE, BENCHMARK_FRAMES);
+        long sourceTime = System.nanoTime() - start;
+
+        System.out.println(String.format("LookupTableInterpolator: table %.2f ns/call, source %.2f ns/call",
+                (double) tableTime / BENCHMARK_FRAMES, (double) sourceTime / BENCHMARK_FRAMES));
+
+        assertEquals(sourceSum, tableSum, BENCHMARK_FRAMES * 1e-4);
+    }
+
+    private static double runFrames(Interpolator interpolator, int frames) {
+        double sum = 0;
+        for (int i = 0; i < frames; i++)
+            sum += interpolator.getInterpolation((float) i / (frames - 1));
+        return sum;
+    }
+}
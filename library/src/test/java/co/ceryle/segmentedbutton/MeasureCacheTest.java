@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2016 ceryle
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package co.ceryle.segmentedbutton;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MeasureCacheTest {
+
+    private static final int WIDTH_SPEC = 0x40000000 | 300, HEIGHT_SPEC = 0x80000000 | 120;
+
+    private static MeasureCache measured() {
+        MeasureCache cache = new MeasureCache();
+        assertFalse(cache.matches(WIDTH_SPEC, HEIGHT_SPEC, 4, 4, 4, 4, 24, 24));
+        cache.save(WIDTH_SPEC, HEIGHT_SPEC, 4, 4, 4, 4, 24, 24, 300, 48);
+        return cache;
+    }
+
+    @Test
+    public void repeatedPassesReuseResult() {
+        MeasureCache cache = measured();
+        for (int i = 0; i < 3; i++)
+            assertTrue(cache.matches(WIDTH_SPEC, HEIGHT_SPEC, 4, 4, 4, 4, 24, 24));
+        assertEquals(1, cache.getMissCount());
+        assertEquals(300, cache.getMeasuredWidth());
+        assertEquals(48, cache.getMeasuredHeight());
+    }
+
+    @Test
+    public void changedSpecRunsSlowPath() {
+        MeasureCache cache = measured();
+        assertFalse(cache.matches(0x40000000 | 200, HEIGHT_SPEC, 4, 4, 4, 4, 24, 24));
+        assertFalse(cache.matches(WIDTH_SPEC, 0x40000000 | 120, 4, 4, 4, 4, 24, 24));
+        assertEquals(3, cache.getMissCount());
+    }
+
+    @Test
+    public void changedPaddingOrDrawableRunsSlowPath() {
+        MeasureCache cache = measured();
+        assertFalse(cache.matches(WIDTH_SPEC, HEIGHT_SPEC, 8, 4, 4, 4, 24, 24));
+        assertFalse(cache.matches(WIDTH_SPEC, HEIGHT_SPEC, 4, 4, 4, 0, 24, 24));
+        assertFalse(cache.matches(WIDTH_SPEC, HEIGHT_SPEC, 4, 4, 4, 4, 32, 24));
+        assertFalse(cache.matches(WIDTH_SPEC, HEIGHT_SPEC, 4, 4, 4, 4, 24, 32));
+        assertEquals(5, cache.getMissCount());
+    }
+
+    @Test
+    public void invalidateRunsSlowPathOnce() {
+        MeasureCache cache = measured();
+        cache.invalidate();
+        assertFalse(cache.matches(WIDTH_SPEC, HEIGHT_SPEC, 4, 4, 4, 4, 24, 24));
+        cache.save(WIDTH_SPEC, HEIGHT_SPEC, 4, 4, 4, 4, 24, 24, 300, 52);
+        assertTrue(cache.matches(WIDTH_SPEC, HEIGHT_SPEC, 4, 4, 4, 4, 24, 24));
+        assertEquals(2, cache.getMissCount());
+        assertEquals(52, cache.getMeasuredHeight());
+    }
+}